@@ -0,0 +1,99 @@
+package minesweeper;
+
+import java.util.Arrays;
+
+/**
+ * Measures how long a chord takes when one of the neighbors it reveals opens a large empty region.
+ * Each round covers the board again, uncovers a number on the edge of the region, flags the mines around it
+ * and times {@link GameEngine#chord(int, int)}. For comparison the same neighbors are then revealed one at a
+ * time, handing over the dirty block after each as a screen that repaints per reveal would.
+ * Prints the latency percentiles for boards of a million and sixteen million squares.
+ *
+ * Run with: java -cp benchmarks/target/benchmarks.jar minesweeper.ChordBenchmark
+ */
+public class ChordBenchmark {
+    private static final int ROUNDS = 200;
+
+    public static void main(String[] args) {
+        run(1000, 1000, 5000);
+        run(4000, 4000, 80000);
+        run(1000, 1000, 5000);
+        run(4000, 4000, 80000);
+    }
+
+    private static void run(int height, int width, int mines) {
+        GameEngine engine = new GameEngine(height, width, mines, 1);
+        engine.createGrid();
+        int[] number = findChordSquare(engine);
+        int r = number[0], c = number[1];
+        int[] bounds = new int[4];
+        long[] batched = new long[ROUNDS], single = new long[ROUNDS];
+        int revealed = 0;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            setUp(engine, r, c);
+            long t0 = System.nanoTime();
+            revealed = engine.chord(r, c);
+            engine.takeDirtyBounds(bounds);
+            batched[round] = System.nanoTime() - t0;
+
+            setUp(engine, r, c);
+            t0 = System.nanoTime();
+            for (int nr = r - 1; nr <= r + 1; nr++) {
+                for (int nc = c - 1; nc <= c + 1; nc++) {
+                    if (engine.reveal(nr, nc) != 0) {
+                        engine.hasWon();
+                        engine.takeDirtyBounds(bounds);
+                    }
+                }
+            }
+            single[round] = System.nanoTime() - t0;
+        }
+
+        System.out.printf("%dx%d, %d mines: each chord uncovers %,d squares%n", height, width, mines, revealed);
+        print("  one chord:       ", batched);
+        print("  separate reveals:", single);
+    }
+
+    /**
+     * Covers the board, then uncovers the number and flags its mines, ready for the chord.
+     */
+    private static void setUp(GameEngine engine, int r, int c) {
+        engine.restart();
+        engine.uncoverSquare(r, c); // not reveal, which would deal the mines again
+        for (int nr = r - 1; nr <= r + 1; nr++) {
+            for (int nc = c - 1; nc <= c + 1; nc++) {
+                if (engine.isMine(nr, nc)) {
+                    engine.toggleFlag(nr, nc);
+                }
+            }
+        }
+        engine.takeDirtyBounds(new int[4]);
+    }
+
+    /**
+     * Finds a number away from the edges with an empty square next to it, so the chord floods the region.
+     */
+    private static int[] findChordSquare(GameEngine engine) {
+        for (int r = engine.getHeight() / 2; r < engine.getHeight() - 1; r++) {
+            for (int c = 1; c < engine.getWidth() - 1; c++) {
+                if (engine.isMine(r, c) || engine.getNeighbors(r, c) == 0) continue;
+                for (int nr = r - 1; nr <= r + 1; nr++) {
+                    for (int nc = c - 1; nc <= c + 1; nc++) {
+                        if (!engine.isMine(nr, nc) && engine.getNeighbors(nr, nc) == 0) {
+                            return new int[] { r, c };
+                        }
+                    }
+                }
+            }
+        }
+        throw new IllegalStateException("board has no number next to an empty square");
+    }
+
+    private static void print(String label, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%s p50 %.2f ms, p99 %.2f ms, max %.2f ms%n", label, sorted[sorted.length / 2] / 1e6,
+                sorted[(int) (sorted.length * 0.99)] / 1e6, sorted[sorted.length - 1] / 1e6);
+    }
+}
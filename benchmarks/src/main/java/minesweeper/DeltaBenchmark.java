@@ -0,0 +1,164 @@
+package minesweeper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what {@link ChangeFeed} costs spectators of a large game, and checks that every spectator ends up
+ * seeing what the player sees. A million-square board is played to a win by flagging its mines and revealing
+ * its safe squares in a random order, while three spectators watch: one from the start, one that joins halfway
+ * and starts from a snapshot, and a slow one that takes a frame at a time and falls behind, so it is sent
+ * snapshots instead of the frames it missed. Reports the bytes each move cost against sending the whole board,
+ * and the frames per second the spectators took.
+ *
+ * Run with: java -cp benchmarks/target/benchmarks.jar minesweeper.DeltaBenchmark [--rounds N]
+ */
+public class DeltaBenchmark {
+    private static final int HEIGHT = 1000, WIDTH = 1000, MINES = 150_000;
+    private static final int MAX_QUEUED = 4096;
+
+    public static void main(String[] args) throws InterruptedException {
+        int rounds = 3;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--rounds": rounds = Integer.parseInt(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        System.out.printf("%dx%d, %,d mines, %,d frames buffered per spectator%n", HEIGHT, WIDTH, MINES, MAX_QUEUED);
+        for (int round = 0; round < rounds; round++) {
+            run(round, executor);
+        }
+        executor.shutdown();
+    }
+
+    private static void run(long seed, ExecutorService executor) throws InterruptedException {
+        GameEngine game = new GameEngine(HEIGHT, WIDTH, MINES, seed);
+        ChangeFeed feed = new ChangeFeed(game, executor, MAX_QUEUED);
+        List<Spectator> spectators = new ArrayList<>();
+        Spectator first = new Spectator(Long.MAX_VALUE);
+        feed.subscribe(first);
+        spectators.add(first);
+        Spectator slow = new Spectator(1);
+        feed.subscribe(slow);
+        spectators.add(slow);
+
+        game.reveal(HEIGHT / 2, WIDTH / 2);
+        int size = HEIGHT * WIDTH;
+        int[] order = new int[size];
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < size; i++) {
+            int j = random.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+
+        long moves = 0, start = System.nanoTime();
+        for (int k = 0; k < size && !game.hasWon(); k++) {
+            if (k == size / 2) {
+                Spectator late = new Spectator(Long.MAX_VALUE);
+                feed.subscribe(late);
+                spectators.add(late);
+            }
+            int r = order[k] / WIDTH, c = order[k] % WIDTH;
+            if (game.isMine(r, c)) {
+                moves += game.toggleFlag(r, c) ? 1 : 0;
+            } else if (!game.isUncovered(r, c)) {
+                game.reveal(r, c);
+                moves++;
+            }
+        }
+        double playSeconds = (System.nanoTime() - start) / 1e9;
+        feed.close();
+        for (Spectator spectator : spectators) {
+            if (!spectator.done.await(60, TimeUnit.SECONDS)) {
+                throw new AssertionError("Spectator never finished");
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        for (Spectator spectator : spectators) {
+            spectator.check(game);
+        }
+        long frames = 0;
+        for (Spectator spectator : spectators) {
+            frames += spectator.frames;
+        }
+        System.out.printf("%,d moves in %.2f s: %,d frames, %,d bytes, %.1f bytes a move (whole board %,d bytes)%n",
+                moves, playSeconds, feed.getFrames(), feed.getBytes(), (double) feed.getBytes() / moves, size);
+        System.out.printf("  %d spectators took %,.0f frames/s; the slow one caught up by %,d snapshots "
+                + "instead of %,d frames%n", spectators.size(), frames / seconds, slow.snapshots, feed.getFrames());
+    }
+
+    /**
+     * Rebuilds the board from the frames, asking for the given number at a time.
+     */
+    private static final class Spectator implements Flow.Subscriber<byte[]> {
+        final ChangeFeed.View view = new ChangeFeed.View();
+        final CountDownLatch done = new CountDownLatch(1);
+        final long batch;
+        Flow.Subscription subscription;
+        long frames, snapshots, left;
+        Throwable error;
+
+        Spectator(long batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            left = batch;
+            subscription.request(batch);
+        }
+
+        @Override
+        public void onNext(byte[] frame) {
+            if (frame[0] == ChangeFeed.CLEARED) {
+                snapshots++;
+            }
+            view.apply(frame);
+            frames++;
+            if (batch != Long.MAX_VALUE && --left == 0) {
+                left = batch;
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+
+        /**
+         * Compares every square with what the player sees.
+         */
+        void check(GameEngine game) {
+            if (error != null) {
+                throw new AssertionError("Spectator failed", error);
+            }
+            for (int i = 0; i < HEIGHT * WIDTH; i++) {
+                if (view.get(i) != GameServer.view(game.cellAt(i))) {
+                    throw new AssertionError("Square " + i + " shows " + view.get(i) + " instead of "
+                            + GameServer.view(game.cellAt(i)));
+                }
+            }
+            if (view.isWon() != game.hasWon() || view.isLost() != game.isMineUncovered()) {
+                throw new AssertionError("Spectator has the wrong result");
+            }
+        }
+    }
+}
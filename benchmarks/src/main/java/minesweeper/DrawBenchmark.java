@@ -0,0 +1,60 @@
+package minesweeper;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures how long {@link Grid#draw(Graphics2D)} takes to paint an 800x700 viewport into an offscreen image,
+ * for a board that just fills the viewport and for a 5000x5000 board scrolled to its middle.
+ * With clip culling both should cost about the same. Heap allocated by the draw calls is counted
+ * with the JVM's per-thread allocation counter; with the tile cache it should not grow with the number of squares.
+ *
+ * Run with: java -Djava.awt.headless=true -cp benchmarks/target/benchmarks.jar minesweeper.DrawBenchmark
+ */
+public class DrawBenchmark {
+    private static final int VIEW_WIDTH = 800, VIEW_HEIGHT = 700;
+    private static final int FRAMES = 200;
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        BufferedImage image = new BufferedImage(VIEW_WIDTH, VIEW_HEIGHT, BufferedImage.TYPE_INT_RGB);
+
+        Grid small = new Grid(VIEW_HEIGHT / 30, VIEW_WIDTH / 30, 50, 0, 0);
+        small.uncoverSquare(0, 0);
+        time("viewport-sized board", small, image, 0, 0);
+
+        Grid large = new Grid(5000, 5000, 2500000, 0, 0);
+        for (int r = 2450; r < 2550; r += 2) {
+            for (int c = 2450; c < 2550; c += 2) {
+                if (!large.isMine(r, c)) large.uncoverSquare(r, c);
+            }
+        }
+        time("5000x5000, middle view", large, image, 2500 * 30, 2500 * 30);
+    }
+
+    /**
+     * Paints the viewport at the given scroll offset repeatedly and prints the mean time and allocation per frame.
+     */
+    private static void time(String name, Grid grid, BufferedImage image, int scrollX, int scrollY) {
+        long thread = Thread.currentThread().getId();
+        long total = 0, allocated = 0;
+        for (int frame = 0; frame < 2 * FRAMES; frame++) {
+            Graphics2D g2 = image.createGraphics();
+            g2.translate(-scrollX, -scrollY);
+            g2.setClip(scrollX, scrollY, VIEW_WIDTH, VIEW_HEIGHT);
+            long a0 = THREADS.getThreadAllocatedBytes(thread);
+            long t0 = System.nanoTime();
+            grid.draw(g2);
+            long t1 = System.nanoTime();
+            long a1 = THREADS.getThreadAllocatedBytes(thread);
+            g2.dispose();
+            if (frame >= FRAMES) { // first half is warm-up
+                total += t1 - t0;
+                allocated += a1 - a0;
+            }
+        }
+        System.out.printf("%-22s %8.3f ms/frame %10d bytes/frame%n", name, total / 1e6 / FRAMES, allocated / FRAMES);
+    }
+}
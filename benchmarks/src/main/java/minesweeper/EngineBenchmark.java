@@ -0,0 +1,54 @@
+package minesweeper;
+
+import java.util.SplittableRandom;
+
+/**
+ * Measures how many moves per second a single thread can push through {@link GameEngine} with no
+ * user interface, by playing expert games (16x30, 99 mines) with a bot that reveals random covered
+ * squares, flags now and then, and chords on uncovered numbers. Boards are reused between games.
+ *
+ * Run with: java -cp benchmarks/target/benchmarks.jar minesweeper.EngineBenchmark
+ */
+public class EngineBenchmark {
+    private static final int HEIGHT = 16, WIDTH = 30, MINES = 99;
+
+    public static void main(String[] args) {
+        GameEngine engine = new GameEngine(HEIGHT, WIDTH, MINES, 0);
+        SplittableRandom rand = new SplittableRandom(1);
+        play(engine, rand, 2_000_000); // warm-up
+
+        for (int run = 0; run < 3; run++) {
+            long t0 = System.nanoTime();
+            long[] result = play(engine, rand, 5_000_000);
+            double seconds = (System.nanoTime() - t0) / 1e9;
+            System.out.printf("%,d moves in %,d games: %,.0f moves/s, %,.0f games/s%n",
+                    result[0], result[1], result[0] / seconds, result[1] / seconds);
+        }
+    }
+
+    /**
+     * Plays games until at least the given number of moves have been made.
+     *
+     * @return The number of moves and games played.
+     */
+    private static long[] play(GameEngine engine, SplittableRandom rand, long moves) {
+        long made = 0, games = 0;
+        while (made < moves) {
+            engine.newGame(rand.nextLong());
+            games++;
+            while (!engine.isGameOver()) {
+                int r = rand.nextInt(HEIGHT), c = rand.nextInt(WIDTH);
+                int choice = rand.nextInt(10);
+                if (engine.isUncovered(r, c)) {
+                    engine.chord(r, c);
+                } else if (choice == 0 && engine.isStarted()) {
+                    engine.toggleFlag(r, c);
+                } else {
+                    engine.reveal(r, c);
+                }
+                made++;
+            }
+        }
+        return new long[] { made, games };
+    }
+}
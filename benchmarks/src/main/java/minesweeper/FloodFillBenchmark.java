@@ -0,0 +1,92 @@
+package minesweeper;
+
+/**
+ * Compares the queue-based flood fill in {@link GameEngine#uncoverSquare(int, int)} with the recursive
+ * fill it replaced, on boards small enough for the recursion to survive the default thread stack.
+ * It then runs the queue-based fill alone on a 50M-square board.
+ *
+ * Run with: java -cp benchmarks/target/benchmarks.jar minesweeper.FloodFillBenchmark
+ */
+public class FloodFillBenchmark {
+    private static final int ROUNDS = 200;
+
+    public static void main(String[] args) {
+        System.out.println("board        mines  revealed   recursive(ms)  queue(ms)");
+        compare(50, 50, 3);
+        compare(100, 100, 10);
+        compare(200, 200, 400);
+        compare(500, 500, 12500);
+        compare(1000, 1000, 100000);
+
+        // Far beyond what the recursion can handle: 50M squares at 0.1% mine density
+        GameEngine big = new GameEngine(5000, 10000, 50000);
+        int[] start = findEmptySquare(big);
+        long t0 = System.nanoTime();
+        int revealed = big.uncoverSquare(start[0], start[1]);
+        long t1 = System.nanoTime();
+        System.out.printf("5000x10000   %6d  %9d   %13s  %9.1f%n", 50000, revealed, "-", (t1 - t0) / 1e6);
+    }
+
+    /**
+     * Times both fills on the same boards, opening the same empty square each round.
+     */
+    private static void compare(int height, int width, int mines) {
+        GameEngine engine = new GameEngine(height, width, mines);
+        int[] start = findEmptySquare(engine);
+        int revealed = 0;
+        long recursive = Long.MAX_VALUE, queue = Long.MAX_VALUE;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            engine.restart();
+            long t0 = System.nanoTime();
+            try {
+                recursiveUncover(engine, start[0], start[1]);
+            } catch (StackOverflowError e) {
+                System.out.printf("%4dx%-4d    %6d  recursion overflowed the stack%n", height, width, mines);
+                return;
+            }
+            recursive = Math.min(recursive, System.nanoTime() - t0);
+
+            engine.restart();
+            t0 = System.nanoTime();
+            revealed = engine.uncoverSquare(start[0], start[1]);
+            queue = Math.min(queue, System.nanoTime() - t0);
+        }
+
+        System.out.printf("%4dx%-4d    %6d  %9d   %13.3f  %9.3f%n",
+                height, width, mines, revealed, recursive / 1e6, queue / 1e6);
+    }
+
+    /**
+     * The recursive flood fill that {@link GameEngine#uncoverSquare(int, int)} used before.
+     */
+    private static void recursiveUncover(GameEngine engine, int r, int c) {
+        engine.uncoverCell(r, c);
+        if (engine.getNeighbors(r, c) == 0) {
+            for (int i = -1; i <= 1; i++) {
+                for (int j = -1; j <= 1; j++) {
+                    int nr = r + i;
+                    int nc = c + j;
+                    if (nr >= 0 && nr < engine.getHeight() && nc >= 0 && nc < engine.getWidth()
+                            && !engine.isUncovered(nr, nc) && !engine.isFlagged(nr, nc)) {
+                        recursiveUncover(engine, nr, nc);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the first square with no adjacent mines, so the fill has something to spread through.
+     */
+    private static int[] findEmptySquare(GameEngine engine) {
+        for (int r = 0; r < engine.getHeight(); r++) {
+            for (int c = 0; c < engine.getWidth(); c++) {
+                if (engine.getNeighbors(r, c) == 0) {
+                    return new int[] { r, c };
+                }
+            }
+        }
+        throw new IllegalStateException("board has no empty squares");
+    }
+}
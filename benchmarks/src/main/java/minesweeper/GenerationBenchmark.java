@@ -0,0 +1,74 @@
+package minesweeper;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Times first-click board creation at 10%, 50% and 99% mine density. The one-pass placement in
+ * {@link GameEngine#createGrid(int, int)} is compared with the old approach of rejection sampling and
+ * regenerating the whole board until the clicked square is not a mine.
+ *
+ * Run with: java -cp benchmarks/target/benchmarks.jar minesweeper.GenerationBenchmark
+ */
+public class GenerationBenchmark {
+    private static final double[] DENSITIES = { 0.10, 0.50, 0.99 };
+
+    public static void main(String[] args) {
+        System.out.println("board        density  old first click(ms)  new first click(ms)");
+        for (double density : DENSITIES) {
+            run(1000, 1000, density, true);
+        }
+        for (double density : DENSITIES) {
+            run(4000, 4000, density, false);
+        }
+    }
+
+    private static void run(int height, int width, double density, boolean withOld) {
+        int mines = (int) (density * height * width);
+        int row = height / 2, col = width / 2;
+
+        String old = "-";
+        if (withOld) {
+            byte[] cells = new byte[height * width];
+            long t0 = System.nanoTime();
+            oldFirstClick(cells, height, width, mines, row, col, new Random(1));
+            old = String.format("%.1f", (System.nanoTime() - t0) / 1e6);
+        }
+
+        GameEngine engine = new GameEngine(height, width, mines, 1);
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long t0 = System.nanoTime();
+            engine.createGrid(row, col);
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        System.out.printf("%4dx%-4d    %5.0f%%  %19s  %19.1f%n", height, width, density * 100, old, best / 1e6);
+    }
+
+    /**
+     * The old first click: place mines by rejection sampling, count neighbors, and start over
+     * while the clicked square is a mine.
+     */
+    private static void oldFirstClick(byte[] cells, int height, int width, int mines, int row, int col, Random rand) {
+        do {
+            Arrays.fill(cells, (byte) 0);
+            int placed = 0;
+            while (placed < mines) {
+                int i = rand.nextInt(height) * width + rand.nextInt(width);
+                if (cells[i] == 0) {
+                    cells[i] = GameEngine.MINE;
+                    placed++;
+                }
+            }
+            for (int i = 0; i < cells.length; i++) {
+                if ((cells[i] & GameEngine.MINE) == 0) continue;
+                int r = i / width, c = i % width;
+                for (int nr = Math.max(0, r - 1); nr <= Math.min(height - 1, r + 1); nr++) {
+                    for (int nc = Math.max(0, c - 1); nc <= Math.min(width - 1, c + 1); nc++) {
+                        if (nr != r || nc != c) cells[nr * width + nc]++;
+                    }
+                }
+            }
+        } while ((cells[row * width + col] & GameEngine.MINE) != 0);
+    }
+}
@@ -0,0 +1,74 @@
+package minesweeper;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Measures how long {@link MineProbabilities} takes to bring the heatmap up to date after a move, on
+ * expert boards and on larger ones. Games are played by revealing a square with the lowest chance of
+ * being a mine, as a player reading the heatmap would, until the game is won or lost.
+ *
+ * Run with: java -cp benchmarks/target/benchmarks.jar minesweeper.HeatmapBenchmark
+ */
+public class HeatmapBenchmark {
+    public static void main(String[] args) {
+        run(16, 30, 99, 300); // warm-up
+        run(16, 30, 99, 2000);
+        run(50, 50, 500, 100);
+        run(100, 100, 2000, 20);
+    }
+
+    private static void run(int height, int width, int mines, int games) {
+        GameEngine engine = new GameEngine(height, width, mines, 0);
+        SplittableRandom rand = new SplittableRandom(1);
+        long[] latencies = new long[1 << 12];
+        int count = 0, cleared = 0;
+        long enumerated = 0, reused = 0;
+        for (int game = 0; game < games; game++) {
+            engine.newGame(game);
+            MineProbabilities odds = new MineProbabilities(engine);
+            int r = height / 2, c = width / 2;
+            while (true) {
+                int uncovered = engine.reveal(r, c);
+                if (engine.isGameOver() || engine.getNumSafeRemaining() == 0) {
+                    break;
+                }
+                odds.update(engine.getLastRevealed(), uncovered);
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = odds.getRefreshNanos();
+                enumerated += odds.getGroupsEnumerated();
+                reused += odds.getGroupsReused();
+
+                // Reveal the safest covered square, breaking ties at random
+                float best = 2;
+                int ties = 0;
+                for (int i = 0; i < height * width; i++) {
+                    float chance = odds.get(i / width, i % width);
+                    if (Float.isNaN(chance) || chance > best) {
+                        continue;
+                    }
+                    if (chance < best) {
+                        best = chance;
+                        ties = 0;
+                    }
+                    if (rand.nextInt(++ties) == 0) {
+                        r = i / width;
+                        c = i % width;
+                    }
+                }
+            }
+            if (!engine.isMineUncovered()) {
+                cleared++;
+            }
+        }
+
+        Arrays.sort(latencies, 0, count);
+        System.out.printf("%dx%d, %d mines: %,d games, %,d refreshes, %d%% cleared, %.1f%% of groups reused%n",
+                height, width, mines, games, count, 100 * cleared / games, 100.0 * reused / Math.max(1, reused + enumerated));
+        System.out.printf("  per refresh: p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                latencies[count / 2] / 1e6, latencies[Math.min(count - 1, (int) (count * 0.99))] / 1e6,
+                latencies[count - 1] / 1e6);
+    }
+}
@@ -0,0 +1,52 @@
+package minesweeper;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Times board generation on a 100M-square board with 1, 2, 4, 8 and 16 fork/join threads, reporting the
+ * neighbor-count pass (which runs in parallel row bands) separately from the whole first-click generation
+ * (whose mine placement is sequential so that a seed always gives the same board). Every run's board is
+ * checked against the single-threaded one.
+ *
+ * Run with: java -Xmx2g -cp benchmarks/target/benchmarks.jar minesweeper.ParallelGenerationBenchmark
+ */
+public class ParallelGenerationBenchmark {
+    private static final int[] THREADS = { 1, 2, 4, 8, 16 };
+    private static final int HEIGHT = 10000, WIDTH = 10000;
+
+    public static void main(String[] args) {
+        System.out.println("cores available: " + Runtime.getRuntime().availableProcessors());
+        System.out.println("threads  counting(ms)  generation(ms)  same board");
+        GameEngine engine = new GameEngine(HEIGHT, WIDTH, HEIGHT * WIDTH / 10, 7);
+        long expected = 0;
+
+        for (int threads : THREADS) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            long counting = Long.MAX_VALUE, generation = Long.MAX_VALUE;
+            for (int round = 0; round < 3; round++) {
+                long t0 = System.nanoTime();
+                pool.submit(() -> engine.createGrid(HEIGHT / 2, WIDTH / 2)).join();
+                long t1 = System.nanoTime();
+                pool.submit(() -> engine.countNeighbors()).join();
+                long t2 = System.nanoTime();
+                generation = Math.min(generation, t1 - t0);
+                counting = Math.min(counting, t2 - t1);
+            }
+            pool.shutdown();
+
+            long checksum = checksum(engine);
+            if (threads == 1) expected = checksum;
+            System.out.printf("%7d  %12.1f  %14.1f  %s%n", threads, counting / 1e6, generation / 1e6, checksum == expected);
+        }
+    }
+
+    private static long checksum(GameEngine engine) {
+        long sum = 0;
+        for (int r = 0; r < engine.getHeight(); r++) {
+            for (int c = 0; c < engine.getWidth(); c++) {
+                sum = sum * 31 + engine.getNeighbors(r, c);
+            }
+        }
+        return sum;
+    }
+}
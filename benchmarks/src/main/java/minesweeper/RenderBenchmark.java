@@ -0,0 +1,130 @@
+package minesweeper;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.SplittableRandom;
+
+/**
+ * Compares the ways of drawing a 1000x1000 board in frames per second: every square drawn with its own shapes
+ * and text ({@link Square#draw}, as before the tile cache), a tile image copied per square through Java2D
+ * ({@link Grid.Rendering#JAVA2D}), and tile pixels copied straight into an image's int array
+ * ({@link Grid.Rendering#RASTER}), filled on one thread and in parallel bands. Each frame redraws a whole view:
+ * a 1920x1080 window at 30 and at 8 pixels a square, and the whole board at 4 pixels a square. A last case
+ * repaints one row of squares across the window, as after a move. Before timing, the Java2D and raster
+ * pictures are checked to be the same pixel for pixel.
+ *
+ * Run with: java -Djava.awt.headless=true -cp benchmarks/target/benchmarks.jar minesweeper.RenderBenchmark [--seconds N]
+ */
+public class RenderBenchmark {
+    private static final int HEIGHT = 1000, WIDTH = 1000, MINES = 150_000;
+    private static final int VIEW_WIDTH = 1920, VIEW_HEIGHT = 1080;
+
+    public static void main(String[] args) {
+        double seconds = 2;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seconds": seconds = Double.parseDouble(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        Grid grid = new Grid(new GameEngine(HEIGHT, WIDTH, MINES, 1), 0, 0);
+        play(grid);
+        System.out.printf("%dx%d board, %d cores%n", HEIGHT, WIDTH, Runtime.getRuntime().availableProcessors());
+        System.out.println("view                      shapes (fps)   Java2D tiles (fps)   raster (fps)   raster parallel (fps)");
+        run("1920x1080 at 30 px", grid, 30, new Rectangle(0, 0, VIEW_WIDTH, VIEW_HEIGHT), seconds);
+        run("1920x1080 at 8 px", grid, 8, new Rectangle(0, 0, VIEW_WIDTH, VIEW_HEIGHT), seconds);
+        run("whole board at 4 px", grid, 4, new Rectangle(0, 0, WIDTH * 4, HEIGHT * 4), seconds);
+        run("one row at 30 px", grid, 30, new Rectangle(0, 300, VIEW_WIDTH, 30), seconds);
+    }
+
+    /**
+     * Opens up about half the board and flags some mines, so every kind of tile is on screen.
+     */
+    private static void play(Grid grid) {
+        SplittableRandom random = new SplittableRandom(7);
+        grid.reveal(HEIGHT / 2, WIDTH / 2);
+        for (int k = 0; k < HEIGHT * WIDTH / 2; k++) {
+            int r = random.nextInt(HEIGHT), c = random.nextInt(WIDTH);
+            if (grid.isMine(r, c)) {
+                if (!grid.isFlagged(r, c)) grid.toggleFlag(r, c);
+            } else {
+                grid.uncoverSquare(r, c);
+            }
+        }
+    }
+
+    private static void run(String name, Grid grid, int size, Rectangle clip, double seconds) {
+        grid.setSquareSize(size);
+        BufferedImage image = new BufferedImage(clip.x + clip.width, clip.y + clip.height, BufferedImage.TYPE_INT_RGB);
+        check(grid, clip, image);
+        double shapes = fps(seconds, image, clip, g2 -> drawShapes(grid, g2, size));
+        grid.setRendering(Grid.Rendering.JAVA2D);
+        double tiles = fps(seconds, image, clip, grid::draw);
+        grid.setRendering(Grid.Rendering.RASTER);
+        grid.setRasterParallel(false);
+        double raster = fps(seconds, image, clip, grid::draw);
+        grid.setRasterParallel(true);
+        double parallel = fps(seconds, image, clip, grid::draw);
+        System.out.printf("%-22s %15.1f %20.1f %14.1f %23.1f%n", name, shapes, tiles, raster, parallel);
+    }
+
+    /**
+     * Draws the view both ways and fails if any pixel differs.
+     */
+    private static void check(Grid grid, Rectangle clip, BufferedImage image) {
+        int[][] pictures = new int[2][];
+        Grid.Rendering[] ways = { Grid.Rendering.JAVA2D, Grid.Rendering.RASTER };
+        for (int k = 0; k < 2; k++) {
+            grid.setRendering(ways[k]);
+            Graphics2D g2 = image.createGraphics();
+            g2.setClip(clip);
+            grid.draw(g2);
+            g2.dispose();
+            pictures[k] = image.getRGB(clip.x, clip.y, clip.width, clip.height, null, 0, clip.width);
+        }
+        for (int i = 0; i < pictures[0].length; i++) {
+            if (pictures[0][i] != pictures[1][i]) {
+                throw new AssertionError(String.format("Pixel %d,%d differs: %06x with Java2D, %06x with raster",
+                        clip.x + i % clip.width, clip.y + i / clip.width, pictures[0][i], pictures[1][i]));
+            }
+        }
+    }
+
+    /**
+     * Draws frames for about the given time, after as many for warm-up.
+     *
+     * @return Frames per second.
+     */
+    private static double fps(double seconds, BufferedImage image, Rectangle clip, java.util.function.Consumer<Graphics2D> draw) {
+        double result = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            long start = System.nanoTime(), end = start + (long) (seconds * 1e9);
+            int frames = 0;
+            long now;
+            do {
+                Graphics2D g2 = image.createGraphics();
+                g2.setClip(clip);
+                draw.accept(g2);
+                g2.dispose();
+                frames++;
+                now = System.nanoTime();
+            } while (now < end);
+            result = frames / ((now - start) / 1e9);
+        }
+        return result;
+    }
+
+    /**
+     * Draws every square in the clip with its own shapes and text, the way the grid drew before it had tiles.
+     */
+    private static void drawShapes(Grid grid, Graphics2D g2, int size) {
+        Rectangle clip = g2.getClipBounds();
+        int lastRow = Math.min(HEIGHT - 1, (clip.y + clip.height - 1) / size);
+        int lastCol = Math.min(WIDTH - 1, (clip.x + clip.width - 1) / size);
+        for (int r = clip.y / size; r <= lastRow; r++) {
+            for (int c = clip.x / size; c <= lastCol; c++) {
+                grid.getSquare(r, c).draw(g2, size, 0, 0);
+            }
+        }
+    }
+}
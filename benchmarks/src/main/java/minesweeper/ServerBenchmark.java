@@ -0,0 +1,201 @@
+package minesweeper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A load generator for {@link GameServer}: opens many sessions, each playing expert games by revealing random
+ * covered squares and starting a new game when one ends, and reports moves per second and the round-trip
+ * latency percentiles. Every session keeps exactly one request outstanding.
+ *
+ * The sessions are shared out between a few driver threads. In each round a driver sends one request on every
+ * one of its sessions, then reads the responses in the same order, so thousands of sessions need only a few
+ * client threads. A request's latency runs from its send to its response being read, and so includes any
+ * wait behind the responses read before it.
+ *
+ * With no --port the server is started in this JVM; to put ten thousand sessions on one machine, run the
+ * server in its own process so that neither side runs out of file descriptors:
+ * <pre>
+ * java -cp core/target/minesweeper-core-1.0-SNAPSHOT.jar minesweeper.GameServer --port 7070
+ * java -cp benchmarks/target/benchmarks.jar minesweeper.ServerBenchmark --port 7070 --sessions 10000
+ * </pre>
+ * Options: [--host H] [--port N] [--sessions N] [--threads N] [--seconds N]
+ */
+public class ServerBenchmark {
+    private static final int HEIGHT = 16, WIDTH = 30, MINES = 99;
+
+    public static void main(String[] args) throws Exception {
+        String host = "localhost";
+        int port = -1, sessions = 1000, threads = 4, seconds = 20;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host": host = args[++i]; break;
+                case "--port": port = Integer.parseInt(args[++i]); break;
+                case "--sessions": sessions = Integer.parseInt(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--seconds": seconds = Integer.parseInt(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        GameServer server = null;
+        if (port < 0) {
+            server = new GameServer(0);
+            server.start();
+            port = server.getPort();
+        }
+
+        List<List<Session>> drivers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            drivers.add(new ArrayList<>());
+        }
+        long connectStart = System.nanoTime();
+        for (int s = 0; s < sessions; s++) {
+            drivers.get(s % threads).add(new Session(host, port, s));
+        }
+        System.out.printf("%,d sessions connected in %.1f s%n", sessions, (System.nanoTime() - connectStart) / 1e9);
+
+        // The first third of the run warms up; only the rest is measured
+        Metrics.Histogram latencies = new Metrics.Histogram();
+        LongAdder moves = new LongAdder(), games = new LongAdder();
+        long start = System.nanoTime();
+        long measureFrom = start + seconds * 1_000_000_000L / 3, end = start + seconds * 1_000_000_000L;
+        List<Thread> running = new ArrayList<>();
+        for (List<Session> driver : drivers) {
+            Thread thread = new Thread(() -> drive(driver, measureFrom, end, latencies, moves, games));
+            thread.start();
+            running.add(thread);
+        }
+        for (Thread thread : running) {
+            thread.join();
+        }
+        double measured = (end - measureFrom) / 1e9;
+
+        System.out.printf("%,d sessions, %d driver threads: %,.0f moves/s, %,.0f games/s%n",
+                sessions, threads, moves.sum() / measured, games.sum() / measured);
+        System.out.printf("  round trip: mean %.0f us, p50 %.0f us, p99 %.0f us, p99.9 %.0f us, max %.1f ms%n",
+                latencies.getMean() / 1e3, latencies.getP50() / 1e3, latencies.getP99() / 1e3,
+                latencies.getP999() / 1e3, latencies.getMax() / 1e6);
+
+        for (List<Session> driver : drivers) {
+            for (Session session : driver) {
+                session.socket.close();
+            }
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    /**
+     * Plays a driver's sessions round by round until the end time.
+     */
+    private static void drive(List<Session> sessions, long measureFrom, long end, Metrics.Histogram latencies,
+                              LongAdder moves, LongAdder games) {
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                if (now >= end) {
+                    return;
+                }
+                for (Session session : sessions) {
+                    session.send();
+                }
+                for (Session session : sessions) {
+                    boolean move = session.receive();
+                    long done = System.nanoTime();
+                    if (session.sentAt >= measureFrom) {
+                        latencies.record(done - session.sentAt);
+                        if (move) {
+                            moves.increment();
+                        } else {
+                            games.increment();
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Session failed", e);
+        }
+    }
+
+    /**
+     * One connection and the board as its player sees it.
+     */
+    private static final class Session {
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+        final SplittableRandom random;
+        final byte[] view = new byte[HEIGHT * WIDTH];
+        int covered; // squares still covered, which includes the mines
+        boolean over = true; // a new game is needed
+        long seed, sentAt;
+
+        Session(String host, int port, long seed) throws IOException {
+            socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            random = new SplittableRandom(seed);
+            this.seed = seed << 20;
+        }
+
+        /**
+         * Sends the next request: a new game if the last one ended, otherwise a reveal of a random covered square.
+         */
+        void send() throws IOException {
+            sentAt = System.nanoTime();
+            if (over) {
+                out.writeByte(GameServer.NEW);
+                out.writeInt(HEIGHT);
+                out.writeInt(WIDTH);
+                out.writeInt(MINES);
+                out.writeLong(seed++);
+            } else {
+                int i;
+                do {
+                    i = random.nextInt(view.length);
+                } while (view[i] != GameServer.COVERED_VIEW);
+                out.writeByte(GameServer.REVEAL);
+                out.writeInt(i / WIDTH);
+                out.writeInt(i % WIDTH);
+            }
+            out.flush();
+        }
+
+        /**
+         * Reads the response to the last request and applies the changed squares to the view.
+         *
+         * @return True if the request was a move, false if it started a game.
+         */
+        boolean receive() throws IOException {
+            boolean move = !over;
+            byte state = in.readByte();
+            if (state == GameServer.ERROR) {
+                throw new IOException("Server error: " + in.readUTF());
+            }
+            if (!move) {
+                Arrays.fill(view, GameServer.COVERED_VIEW);
+                covered = view.length;
+            }
+            for (int n = in.readInt(); n > 0; n--) {
+                int i = in.readInt();
+                byte seen = in.readByte();
+                if (view[i] == GameServer.COVERED_VIEW && seen != GameServer.COVERED_VIEW) covered--;
+                view[i] = seen;
+            }
+            over = state == GameServer.WON || state == GameServer.LOST || covered == MINES;
+            return move;
+        }
+    }
+}
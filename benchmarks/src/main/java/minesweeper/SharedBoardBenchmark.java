@@ -0,0 +1,203 @@
+package minesweeper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Stress test and throughput benchmark for {@link SharedBoard}. After a first reveal in the middle, the squares
+ * of the board are shuffled and dealt out to the threads, and every thread works through its share: it flags
+ * the mines and reveals everything else, and now and then flags and unflags a random square as well. Reveals
+ * set off fills that run into each other and into squares other threads are about to reveal or flag.
+ * When they are done the totals must match a recount of every square, and once a last sweep has finished
+ * the squares that a random flag kept from being revealed, the board must be won.
+ *
+ * The same work is then done on a {@link GameEngine} behind one lock, to show what the compare-and-set cells
+ * and striped totals buy. Scaling with the thread count needs as many cores as threads.
+ *
+ * Last, a chord stress run: the threads chord random squares while they flag most mines and a few safe squares,
+ * so chords open up the board until a wrong one hits a mine and ends the game. The totals must still match.
+ *
+ * Run with: java -cp benchmarks/target/benchmarks.jar minesweeper.SharedBoardBenchmark [--threads 1,2,4,8]
+ */
+public class SharedBoardBenchmark {
+    private static final int HEIGHT = 2048, WIDTH = 2048, MINES = HEIGHT * WIDTH / 6;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] threadCounts = { 1, 2, 4, 8 };
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads": threadCounts = parseList(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        System.out.printf("%dx%d, %,d mines, %d cores%n", HEIGHT, WIDTH, MINES, Runtime.getRuntime().availableProcessors());
+        System.out.println("threads   shared board (moves/s)   one lock (moves/s)");
+        for (int threads : threadCounts) {
+            double shared = 0, locked = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                shared = Math.max(shared, run(new SharedBoard(HEIGHT, WIDTH, MINES, round), threads, round));
+                locked = Math.max(locked, run(new LockedBoard(HEIGHT, WIDTH, MINES, round), threads, round));
+            }
+            System.out.printf("%7d   %,22.0f   %,18.0f%n", threads, shared, locked);
+        }
+        int threads = threadCounts[threadCounts.length - 1];
+        for (int round = 0; round < ROUNDS; round++) {
+            chordStress(threads, round);
+        }
+    }
+
+    /**
+     * Plays a smaller board with chords on every thread until a wrong chord loses it, then checks the totals.
+     */
+    private static void chordStress(int threads, long seed) throws InterruptedException {
+        int height = 512, width = 512, size = height * width;
+        SharedBoard board = new SharedBoard(height, width, size / 6, seed);
+        board.reveal(height / 2, width / 2);
+        long[] chords = new long[threads], uncovered = new long[threads];
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            Thread thread = new Thread(() -> {
+                SplittableRandom own = new SplittableRandom(seed * 31 + worker);
+                while (!board.isMineUncovered()) {
+                    int i = own.nextInt(size), r = i / width, c = i % width;
+                    if (board.isMine(r, c) == own.nextInt(2000) > 0) {
+                        if (!board.isFlagged(r, c)) board.toggleFlag(r, c);
+                    } else if (!board.isMine(r, c)) {
+                        board.reveal(r, c);
+                    }
+                    int j = own.nextInt(size);
+                    int result = board.chord(j / width, j % width);
+                    if (result != 0) {
+                        chords[worker]++;
+                        uncovered[worker] += Math.max(0, result);
+                    }
+                }
+            });
+            thread.start();
+            workers.add(thread);
+        }
+        for (Thread thread : workers) {
+            thread.join();
+        }
+        board.countersMatchBoard();
+        long total = 0, opened = 0;
+        for (int t = 0; t < threads; t++) {
+            total += chords[t];
+            opened += uncovered[t];
+        }
+        System.out.printf("chord stress, %d threads: %,d chords opened %,d squares before one hit a mine; totals match%n",
+                threads, total, opened);
+    }
+
+    /**
+     * Plays one board to a win with the given number of threads and checks the result.
+     *
+     * @return Moves per second.
+     */
+    private static double run(Board board, int threads, long seed) throws InterruptedException {
+        board.reveal(HEIGHT / 2, WIDTH / 2);
+        int size = HEIGHT * WIDTH;
+        int[] order = new int[size];
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < size; i++) {
+            int j = random.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+
+        List<Thread> workers = new ArrayList<>();
+        long[] moves = new long[threads];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int first = (int) ((long) size * t / threads), last = (int) ((long) size * (t + 1) / threads);
+            int worker = t;
+            Thread thread = new Thread(() -> {
+                SplittableRandom own = new SplittableRandom(seed * 31 + worker);
+                long count = 0;
+                for (int k = first; k < last; k++) {
+                    int i = order[k], r = i / WIDTH, c = i % WIDTH;
+                    if (board.isMine(r, c)) {
+                        board.toggleFlag(r, c);
+                    } else {
+                        board.reveal(r, c);
+                    }
+                    count++;
+                    if ((k & 7) == 0) {
+                        int other = own.nextInt(size);
+                        board.toggleFlag(other / WIDTH, other % WIDTH);
+                        board.toggleFlag(other / WIDTH, other % WIDTH);
+                        count += 2;
+                    }
+                }
+                moves[worker] = count;
+            });
+            thread.start();
+            workers.add(thread);
+        }
+        for (Thread thread : workers) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (board instanceof SharedBoard) {
+            ((SharedBoard) board).countersMatchBoard();
+        }
+
+        // A random flag can land on a safe square just as its owner reveals it, leaving it covered, and two
+        // threads flipping the same mine's flag can leave it off, so a last sweep finishes those squares
+        for (int i = 0; i < size; i++) {
+            int r = i / WIDTH, c = i % WIDTH;
+            if (board.isMine(r, c) != board.isFlagged(r, c)) {
+                board.toggleFlag(r, c);
+            }
+            board.reveal(r, c);
+        }
+        if (!board.hasWon()) {
+            throw new AssertionError("Board not won: " + board.getNumSafeRemaining() + " safe squares left, "
+                    + board.getNumFlaggedSquares() + " flags");
+        }
+        if (board instanceof SharedBoard) {
+            ((SharedBoard) board).countersMatchBoard();
+        }
+        long total = 0;
+        for (long count : moves) {
+            total += count;
+        }
+        return total / seconds;
+    }
+
+    private static int[] parseList(String list) {
+        String[] parts = list.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i]);
+        }
+        return values;
+    }
+
+    /**
+     * The single-threaded engine made safe for many threads the simple way, with every move under one lock.
+     */
+    private static final class LockedBoard extends GameEngine {
+        LockedBoard(int height, int width, int numMines, long seed) {
+            super(height, width, numMines, seed);
+        }
+
+        @Override
+        public synchronized int reveal(int r, int c) {
+            return super.reveal(r, c);
+        }
+
+        @Override
+        public synchronized boolean toggleFlag(int r, int c) {
+            return super.toggleFlag(r, c);
+        }
+
+        @Override
+        public synchronized boolean isMine(int r, int c) {
+            return super.isMine(r, c);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package minesweeper;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Measures how long the {@link Solver} takes per move: telling it which squares the last move uncovered,
+ * then asking it for the next safe square. Games are played to the end, guessing a random unknown square
+ * when the solver is stuck (the guess itself isn't timed). Prints the latency percentiles for an expert
+ * board and for a huge one.
+ *
+ * Run with: java -cp benchmarks/target/benchmarks.jar minesweeper.SolverBenchmark
+ */
+public class SolverBenchmark {
+    public static void main(String[] args) {
+        run(16, 30, 99, 20_000);
+        run(1000, 1000, 150_000, 5);
+        run(16, 30, 99, 20_000);
+        run(1000, 1000, 150_000, 5);
+    }
+
+    private static void run(int height, int width, int mines, int games) {
+        GameEngine engine = new GameEngine(height, width, mines, 0);
+        Solver solver = new Solver(engine);
+        SplittableRandom rand = new SplittableRandom(1);
+        long[] latencies = new long[1 << 16];
+        int count = 0, wins = 0;
+        long start = System.nanoTime();
+        for (int game = 0; game < games; game++) {
+            engine.newGame(game);
+            solver.reset();
+            int i = height / 2 * width + width / 2;
+            while (true) {
+                int uncovered = engine.reveal(i / width, i % width);
+                if (engine.isGameOver() || engine.getNumSafeRemaining() == 0) {
+                    break;
+                }
+                long t0 = System.nanoTime();
+                solver.update(engine.getLastRevealed(), uncovered);
+                i = solver.nextSafe();
+                long elapsed = System.nanoTime() - t0;
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = elapsed;
+                if (i < 0) {
+                    do {
+                        i = rand.nextInt(height * width);
+                    } while (!solver.isUnknown(i));
+                }
+            }
+            if (!engine.isMineUncovered()) {
+                wins++;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Arrays.sort(latencies, 0, count);
+        long total = 0;
+        for (int k = 0; k < count; k++) {
+            total += latencies[k];
+        }
+        System.out.printf("%dx%d, %d mines: %,d games, %,d moves in %.1f s, %d%% cleared%n",
+                height, width, mines, games, count, seconds, 100 * wins / games);
+        System.out.printf("  per move: mean %.1f us, p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f ms%n",
+                total / 1e3 / count, percentile(latencies, count, 0.5), percentile(latencies, count, 0.99),
+                percentile(latencies, count, 0.999), latencies[count - 1] / 1e6);
+    }
+
+    /** @return The given percentile of the sorted latencies, in microseconds. */
+    private static double percentile(long[] sorted, int count, double p) {
+        return sorted[Math.min(count - 1, (int) (p * count))] / 1e3;
+    }
+}
@@ -0,0 +1,41 @@
+package minesweeper.jmh;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared parameters for the JMH benchmarks: board size as "rows x columns", mine density, and seed.
+ * Every benchmark in this package extends it, so one set of {@code -p} options covers them all.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g", "-Djava.awt.headless=true" })
+public abstract class BoardBenchmark {
+    @Param({ "16x30", "256x256", "2048x2048" })
+    public String size;
+
+    @Param({ "0.15" })
+    public double density;
+
+    @Param({ "1" })
+    public long seed;
+
+    /** @return The number of rows in the size parameter. */
+    protected int rows() {
+        return Integer.parseInt(size.substring(0, size.indexOf('x')));
+    }
+
+    /** @return The number of columns in the size parameter. */
+    protected int cols() {
+        return Integer.parseInt(size.substring(size.indexOf('x') + 1));
+    }
+
+    /** @return The number of mines for the board size and density. */
+    protected int mines() {
+        return (int) Math.round((double) rows() * cols() * density);
+    }
+}
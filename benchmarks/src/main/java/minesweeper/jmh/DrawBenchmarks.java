@@ -0,0 +1,39 @@
+package minesweeper.jmh;
+
+import minesweeper.Grid;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * {@link Grid#draw} of an 800x700 viewport in the middle of the board into an offscreen image,
+ * with a partly opened board so every kind of tile is drawn.
+ */
+public class DrawBenchmarks extends BoardBenchmark {
+    private static final int VIEW_WIDTH = 800, VIEW_HEIGHT = 700;
+
+    private Grid grid;
+    private BufferedImage image;
+    private int scrollX, scrollY;
+
+    @Setup
+    public void setUp() {
+        grid = new Grid(rows(), cols(), mines(), 0, 0, seed);
+        grid.getEngine().reveal(rows() / 2, cols() / 2);
+        image = new BufferedImage(VIEW_WIDTH, VIEW_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        int size = grid.getSquareSize();
+        scrollX = Math.max(0, cols() * size / 2 - VIEW_WIDTH / 2);
+        scrollY = Math.max(0, rows() * size / 2 - VIEW_HEIGHT / 2);
+    }
+
+    @Benchmark
+    public BufferedImage draw() {
+        Graphics2D g2 = image.createGraphics();
+        g2.translate(-scrollX, -scrollY);
+        g2.setClip(scrollX, scrollY, VIEW_WIDTH, VIEW_HEIGHT);
+        grid.draw(g2);
+        g2.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,41 @@
+package minesweeper.jmh;
+
+import minesweeper.GameEngine;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Opening the largest empty area on the board with {@link GameEngine#uncoverSquare(int, int)}.
+ * The board is covered again before every call, outside the timed part.
+ */
+public class FloodFillBenchmarks extends BoardBenchmark {
+    private GameEngine engine;
+    private int startRow, startCol;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new GameEngine(rows(), cols(), mines(), seed);
+        int best = -1;
+        for (int r = 0; r < rows(); r++) {
+            for (int c = 0; c < cols(); c++) {
+                if (engine.getNeighbors(r, c) == 0 && !engine.isUncovered(r, c)) {
+                    int opened = engine.uncoverSquare(r, c);
+                    if (opened > best) {
+                        best = opened;
+                        startRow = r;
+                        startCol = c;
+                    }
+                }
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void cover() {
+        engine.restart();
+    }
+
+    @Benchmark
+    public int uncoverSquare() {
+        return engine.uncoverSquare(startRow, startCol);
+    }
+}
@@ -0,0 +1,29 @@
+package minesweeper.jmh;
+
+import minesweeper.GameEngine;
+import minesweeper.Grid;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Board creation: building a whole {@link Grid}, and laying out the mines again around a first click
+ * on an existing board with {@link GameEngine#createGrid(int, int)}.
+ */
+public class GenerationBenchmarks extends BoardBenchmark {
+    private GameEngine engine;
+
+    @Setup
+    public void setUp() {
+        engine = new GameEngine(rows(), cols(), mines(), seed);
+    }
+
+    @Benchmark
+    public Grid construct() {
+        return new Grid(rows(), cols(), mines(), 0, 0, seed);
+    }
+
+    @Benchmark
+    public GameEngine createGrid() {
+        engine.createGrid(rows() / 2, cols() / 2);
+        return engine;
+    }
+}
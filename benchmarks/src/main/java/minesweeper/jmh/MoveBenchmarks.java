@@ -0,0 +1,43 @@
+package minesweeper.jmh;
+
+import minesweeper.Grid;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+
+/**
+ * {@link Grid#userMove} with a fixed sequence of random clicks, nine in ten of them uncovers.
+ * A lost or won game is started over on the same board, so the next uncover places the mines again.
+ */
+public class MoveBenchmarks extends BoardBenchmark {
+    private static final int SQUARE_SIZE = 30;
+    private static final int CLICKS = 1 << 16;
+
+    private Grid grid;
+    private int[] xs, ys;
+    private boolean[] flags;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        grid = new Grid(rows(), cols(), mines(), 0, 0, seed);
+        SplittableRandom rand = new SplittableRandom(seed);
+        xs = new int[CLICKS];
+        ys = new int[CLICKS];
+        flags = new boolean[CLICKS];
+        for (int i = 0; i < CLICKS; i++) {
+            xs[i] = rand.nextInt(cols()) * SQUARE_SIZE + SQUARE_SIZE / 2;
+            ys[i] = rand.nextInt(rows()) * SQUARE_SIZE + SQUARE_SIZE / 2;
+            flags[i] = rand.nextInt(10) == 0;
+        }
+    }
+
+    @Benchmark
+    public boolean userMove() {
+        int i = next++ & (CLICKS - 1);
+        if (grid.getEngine().isGameOver()) {
+            grid.getEngine().restart();
+        }
+        return grid.userMove(xs[i], ys[i], flags[i] ? "flag" : "uncover", grid.getEngine().isStarted());
+    }
+}
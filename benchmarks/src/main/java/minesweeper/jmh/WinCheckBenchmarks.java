@@ -0,0 +1,25 @@
+package minesweeper.jmh;
+
+import minesweeper.GameEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link GameEngine#hasWon()} on a game in progress, which should not depend on the board size.
+ */
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WinCheckBenchmarks extends BoardBenchmark {
+    private GameEngine engine;
+
+    @Setup
+    public void setUp() {
+        engine = new GameEngine(rows(), cols(), mines(), seed);
+        engine.reveal(rows() / 2, cols() / 2);
+    }
+
+    @Benchmark
+    public boolean hasWon() {
+        return engine.hasWon();
+    }
+}
@@ -0,0 +1,271 @@
+package minesweeper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Plays many seeded games with a {@link MoveStrategy} and no user interface, spread over a thread pool,
+ * and reports the win rate, moves per game and games per second.
+ *
+ * Each worker owns one {@link GameEngine} and one strategy and resets the board in place between games
+ * with {@link GameEngine#newGame(long)}, so the board's squares are never allocated again. Dealing still
+ * allocates a little per game: the random number generator, the safe squares and sampling tables, and the
+ * neighbor-count task; with no-guess on, each deal also builds a {@link NoGuessGenerator} with its own engine
+ * and solver. Workers take games in batches from a shared counter, and game i is always played with seed firstSeed + i, so the results
+ * are the same whatever the number of threads.
+ *
+ * Run with: java -cp core/target/minesweeper-core-1.0-SNAPSHOT.jar minesweeper.BatchSimulator
+ * [--games N] [--threads N] [--board beginner|intermediate|expert|ROWSxCOLS:MINES] [--seed N]
+ * [--strategy random|solver] [--no-guess] [--virtual]
+ */
+public class BatchSimulator {
+    private static final int BATCH_SIZE = 1024;
+
+    private final int height, width, numMines;
+    private final Supplier<? extends MoveStrategy> strategies;
+    private int maxMoves;
+    private boolean noGuess;
+
+    /**
+     * Constructs a simulator for boards of one size.
+     *
+     * @param height     number of rows
+     * @param width      number of columns
+     * @param numMines   number of mines
+     * @param strategies makes one strategy for each worker
+     */
+    public BatchSimulator(int height, int width, int numMines, Supplier<? extends MoveStrategy> strategies) {
+        if (numMines < 0 || numMines > (long) height * width) {
+            throw new IllegalArgumentException("Cannot place " + numMines + " mines on a " + height + "x" + width + " grid");
+        }
+        this.height = height;
+        this.width = width;
+        this.numMines = numMines;
+        this.strategies = strategies;
+        this.maxMoves = 4 * height * width + 16;
+    }
+
+    /**
+     * Sets how many moves a game may take before it is given up and counted as unfinished,
+     * which stops a strategy that makes no progress from running forever.
+     *
+     * @param maxMoves Moves allowed per game
+     */
+    public void setMaxMoves(int maxMoves) {
+        this.maxMoves = maxMoves;
+    }
+
+    /**
+     * Sets whether games are dealt only boards that can be solved without guessing,
+     * see {@link GameEngine#setNoGuess(boolean)}.
+     *
+     * @param noGuess True to play only boards that need no guessing
+     */
+    public void setNoGuess(boolean noGuess) {
+        this.noGuess = noGuess;
+    }
+
+    /**
+     * Plays games on the given pool and waits for them to finish. The pool is not shut down.
+     *
+     * @param games     Number of games to play
+     * @param firstSeed Seed of the first game; the others follow on from it
+     * @param pool      Runs the workers
+     * @param workers   Number of workers to start, normally the number of threads in the pool
+     * @return The combined results of all the games.
+     * @throws InterruptedException If the thread is interrupted while waiting for the workers.
+     */
+    public Result run(long games, long firstSeed, ExecutorService pool, int workers) throws InterruptedException {
+        AtomicLong nextGame = new AtomicLong();
+        List<Future<Result>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int w = 0; w < workers; w++) {
+            futures.add(pool.submit(worker(games, firstSeed, nextGame)));
+        }
+
+        Result total = new Result();
+        for (Future<Result> future : futures) {
+            try {
+                total.add(future.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Simulation worker failed", e.getCause());
+            }
+        }
+        total.nanos = System.nanoTime() - start;
+        return total;
+    }
+
+    /**
+     * Makes a worker that plays batches of games until all of them have been handed out.
+     */
+    private Callable<Result> worker(long games, long firstSeed, AtomicLong nextGame) {
+        return () -> {
+            GameEngine engine = new GameEngine(height, width, numMines, firstSeed);
+            engine.setNoGuess(noGuess);
+            MoveStrategy strategy = strategies.get();
+            Result result = new Result();
+            long first;
+            while ((first = nextGame.getAndAdd(BATCH_SIZE)) < games) {
+                long last = Math.min(games, first + BATCH_SIZE);
+                for (long game = first; game < last; game++) {
+                    play(engine, strategy, firstSeed + game, result);
+                }
+            }
+            return result;
+        };
+    }
+
+    /**
+     * Plays one game to the end, or until it runs out of moves, and adds it to the result.
+     */
+    private void play(GameEngine engine, MoveStrategy strategy, long seed, Result result) {
+        engine.newGame(seed);
+        strategy.newGame(engine, seed);
+        int moves = 0;
+        while (!engine.isGameOver() && moves < maxMoves) {
+            strategy.move(engine);
+            moves++;
+        }
+        result.games++;
+        result.moves += moves;
+        if (engine.hasWon()) {
+            result.wins++;
+        } else if (!engine.isMineUncovered()) {
+            result.unfinished++;
+        }
+    }
+
+    /**
+     * Totals from a batch of games.
+     */
+    public static class Result {
+        private long games, wins, unfinished, moves, nanos;
+
+        /** @return The number of games played. */
+        public long getGames() {
+            return games;
+        }
+
+        /** @return The number of games won. */
+        public long getWins() {
+            return wins;
+        }
+
+        /** @return The number of games given up after too many moves, counted as neither won nor lost. */
+        public long getUnfinished() {
+            return unfinished;
+        }
+
+        /** @return The number of moves made over all the games. */
+        public long getMoves() {
+            return moves;
+        }
+
+        /** @return The fraction of games won. */
+        public double getWinRate() {
+            return games == 0 ? 0 : (double) wins / games;
+        }
+
+        /** @return The average number of moves in a game. */
+        public double getMovesPerGame() {
+            return games == 0 ? 0 : (double) moves / games;
+        }
+
+        /** @return The number of games played per second of wall-clock time. */
+        public double getGamesPerSecond() {
+            return nanos == 0 ? 0 : games * 1e9 / nanos;
+        }
+
+        private void add(Result other) {
+            games += other.games;
+            wins += other.wins;
+            unfinished += other.unfinished;
+            moves += other.moves;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d games in %.2f s: %,.0f games/s, win rate %.3f%%, %.2f moves/game, %,d unfinished",
+                    games, nanos / 1e9, getGamesPerSecond(), 100 * getWinRate(), getMovesPerGame(), unfinished);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long games = 1_000_000, seed = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String board = "beginner";
+        String strategy = "random";
+        boolean virtual = false, noGuess = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games": games = Long.parseLong(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--board": board = args[++i]; break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--strategy": strategy = args[++i]; break;
+                case "--no-guess": noGuess = true; break;
+                case "--virtual": virtual = true; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        int[] size = parseBoard(board);
+        Supplier<MoveStrategy> strategies;
+        switch (strategy) {
+            case "random": strategies = RandomStrategy::new; break;
+            case "solver": strategies = SolverStrategy::new; break;
+            default: throw new IllegalArgumentException("Strategy must be random or solver, not " + strategy);
+        }
+        BatchSimulator simulator = new BatchSimulator(size[0], size[1], size[2], strategies);
+        simulator.setNoGuess(noGuess);
+        ExecutorService pool = virtual ? virtualThreadPool() : null;
+        if (pool == null) {
+            pool = Executors.newFixedThreadPool(threads);
+        }
+        try {
+            simulator.run(Math.min(games, 100_000), seed, pool, threads); // warm-up
+            System.out.println(simulator.run(games, seed, pool, threads));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @return The rows, columns and mines of a named board, or of one written as ROWSxCOLS:MINES.
+     */
+    static int[] parseBoard(String board) {
+        switch (board) {
+            case "beginner": return new int[] { 9, 9, 10 };
+            case "intermediate": return new int[] { 16, 16, 40 };
+            case "expert": return new int[] { 16, 30, 99 };
+            default:
+                int x = board.indexOf('x'), colon = board.indexOf(':');
+                if (x < 0 || colon < x) {
+                    throw new IllegalArgumentException("Board must be beginner, intermediate, expert or ROWSxCOLS:MINES, not " + board);
+                }
+                return new int[] { Integer.parseInt(board.substring(0, x)),
+                        Integer.parseInt(board.substring(x + 1, colon)), Integer.parseInt(board.substring(colon + 1)) };
+        }
+    }
+
+    /**
+     * Looks up the virtual thread executor, which only exists from Java 21 on.
+     *
+     * @return An executor starting a virtual thread per task, or null on older Java versions.
+     */
+    private static ExecutorService virtualThreadPool() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("Virtual threads need Java 21 or later; using a fixed thread pool");
+            return null;
+        }
+    }
+}
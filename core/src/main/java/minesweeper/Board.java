@@ -0,0 +1,137 @@
+package minesweeper;
+
+/**
+ * A game board as the user interface sees it: its squares and the moves a player can make on them.
+ * {@link GameEngine} keeps a board in memory; {@link MappedBoard} plays one saved by {@link BoardFile}
+ * straight from the file, and {@link SharedBoard} can be played by many threads at once. {@link Grid} draws any of them.
+ */
+public interface Board {
+    /** @return The number of rows on the board. */
+    int getHeight();
+
+    /** @return The number of columns on the board. */
+    int getWidth();
+
+    /** @return The total number of mines on the board. */
+    int getNumMines();
+
+    /** @return The seed the mines are placed from. */
+    long getSeed();
+
+    /** @return The number of flagged squares on the board. */
+    int getNumFlaggedSquares();
+
+    /** @return The number of safe squares that are still covered. */
+    int getNumSafeRemaining();
+
+    /** @return Whether the first square has been revealed, which places the mines; flags alone don't start a game. */
+    boolean isStarted();
+
+    /** @return Whether a mine has been uncovered (game over condition). */
+    boolean isMineUncovered();
+
+    /** @return Whether every safe square is uncovered and every mine is flagged. */
+    boolean hasWon();
+
+    /** @return Whether the game has been won or lost. */
+    boolean isGameOver();
+
+    /**
+     * @param r Row index
+     * @param c Column index
+     * @return Whether the square at the given position is a mine.
+     */
+    boolean isMine(int r, int c);
+
+    /**
+     * @param r Row index
+     * @param c Column index
+     * @return Whether the square at the given position is flagged.
+     */
+    boolean isFlagged(int r, int c);
+
+    /**
+     * @param r Row index
+     * @param c Column index
+     * @return Whether the square at the given position is uncovered.
+     */
+    boolean isUncovered(int r, int c);
+
+    /**
+     * @param r Row index
+     * @param c Column index
+     * @return The number of adjacent mines, or -1 if the square is a mine.
+     */
+    int getNeighbors(int r, int c);
+
+    /**
+     * @param i Square index, row * width + col
+     * @return The state of the square packed into a byte the way {@link GameEngine} stores it:
+     *         the neighbor count in the low four bits, then the mine, flagged and uncovered bits.
+     */
+    byte cellAt(int i);
+
+    /**
+     * Reveals a square as a player's move. The first reveal of a game places the mines so that
+     * this square is safe. Flagged or already uncovered squares are left alone, and so is
+     * every square once the game is over.
+     *
+     * @param r Row index
+     * @param c Column index
+     * @return The number of squares uncovered, or -1 if a mine was uncovered.
+     */
+    int reveal(int r, int c);
+
+    /**
+     * Flags or unflags a covered square as a player's move. Ignored once the game is over.
+     *
+     * @param r Row index
+     * @param c Column index
+     * @return True if the flag changed; false if the square is uncovered or the game is over.
+     */
+    boolean toggleFlag(int r, int c);
+
+    /**
+     * Reveals every covered, unflagged neighbor of an uncovered number whose flags already account for
+     * all of its mines, as one flood fill, so the whole chord is a single move. Nothing happens if the
+     * square is covered or the flag count doesn't match its number. A wrong flag uncovers a mine.
+     *
+     * @param r Row index
+     * @param c Column index
+     * @return The number of squares uncovered, or -1 if a mine was uncovered.
+     */
+    int chord(int r, int c);
+
+    /**
+     * Flags or unflags a square at the given position, without the checks of {@link #toggleFlag}.
+     *
+     * @param r Row index
+     * @param c Column index
+     */
+    void flag(int r, int c);
+
+    /**
+     * Uncovers a square, spreading through connected empty squares, without the checks of {@link #reveal}.
+     *
+     * @param r Row index
+     * @param c Column index
+     * @return The number of squares uncovered by this call, or -1 if it was a mine.
+     */
+    int uncoverSquare(int r, int c);
+
+    /**
+     * Returns the squares uncovered by the last move, as indexes of the form {@code row * width + col}.
+     * Only the first n entries are valid, where n is the value the move returned.
+     *
+     * @return The buffer holding the last uncovered squares.
+     */
+    int[] getLastRevealed();
+
+    /**
+     * Hands over the block of squares that has changed since the last call, and clears it.
+     *
+     * @param bounds Receives the first row, first column, last row and last column of the block.
+     * @return True if anything changed; false (leaving bounds untouched) otherwise.
+     */
+    boolean takeDirtyBounds(int[] bounds);
+}
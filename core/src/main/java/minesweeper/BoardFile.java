@@ -0,0 +1,204 @@
+package minesweeper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Saves games to a compact binary file and reads them back.
+ *
+ * A file is a 64-byte header followed by three bit-planes: the mines, the uncovered squares and the flagged
+ * squares, in that order. In each plane bit k of 64-bit word w stands for square w * 64 + k (square index
+ * row * width + col), so a plane takes one bit per square rounded up to whole words, and a billion-square
+ * board fits in about 375 MB. Neighbor counts are not stored; they follow from the mines.
+ * Everything is little-endian. The header holds, by byte offset:
+ * <pre>
+ *  0  int   magic number, "MSWP"
+ *  4  int   format version, 1
+ *  8  int   rows
+ * 12  int   columns
+ * 16  int   mines
+ * 20  int   flags: 1 started, 2 mine uncovered, 4 safe neighborhood
+ * 24  long  seed
+ * 32  int   flagged squares
+ * 36  int   uncovered safe squares
+ * 40  int   flagged mines
+ * 44  20 bytes reserved, zero
+ * </pre>
+ *
+ * Games are written through a {@link FileChannel} a buffer at a time, to a temporary file that then replaces
+ * the old one, so a failed save never leaves a half-written game behind. {@link #load} reads a file back into a
+ * {@link GameEngine}; {@link #map} instead maps it into memory as a {@link MappedBoard}, which opens at once
+ * whatever the size and only reads the parts of the board that are looked at.
+ */
+public final class BoardFile {
+    static final int MAGIC = 0x5057534D; // "MSWP" in little-endian order
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+
+    // Header offsets
+    static final int HEIGHT = 8, WIDTH = 12, MINES = 16, FLAGS = 20, SEED = 24;
+    static final int FLAGGED_SQUARES = 32, UNCOVERED_SAFE = 36, FLAGGED_MINES = 40;
+
+    // Bits of the flags field
+    static final int STARTED = 1, MINE_UNCOVERED = 2, SAFE_NEIGHBORHOOD = 4;
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private BoardFile() {
+    }
+
+    /**
+     * @param squares Number of squares on the board
+     * @return The size of one bit-plane in bytes.
+     */
+    static long planeBytes(long squares) {
+        return (squares + 63) / 64 * 8;
+    }
+
+    /**
+     * Writes a game to a file, replacing any file already there.
+     *
+     * @param game The game to save
+     * @param path Where to save it
+     * @throws IOException If the file can't be written.
+     */
+    public static void save(GameEngine game, Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        int squares = game.getHeight() * game.getWidth();
+        long plane = planeBytes(squares);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            // One pass over the board fills all three planes, each written at its own place in the file
+            ByteBuffer[] buffers = new ByteBuffer[3];
+            long[] offsets = { HEADER_SIZE, HEADER_SIZE + plane, HEADER_SIZE + 2 * plane };
+            for (int p = 0; p < 3; p++) {
+                buffers[p] = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            int flaggedMines = 0;
+            for (int i = 0; i < squares; i += 64) {
+                long mines = 0, uncovered = 0, flagged = 0;
+                for (int k = 0, end = Math.min(64, squares - i); k < end; k++) {
+                    // MINE, FLAGGED and UNCOVERED are bits 4, 5 and 6
+                    long cell = game.cellAt(i + k);
+                    mines |= (cell >> 4 & 1) << k;
+                    flagged |= (cell >> 5 & 1) << k;
+                    uncovered |= (cell >> 6 & 1) << k;
+                }
+                flaggedMines += Long.bitCount(mines & flagged);
+                if (!buffers[0].hasRemaining()) {
+                    for (int p = 0; p < 3; p++) {
+                        offsets[p] = drain(channel, buffers[p], offsets[p]);
+                    }
+                }
+                buffers[0].putLong(mines);
+                buffers[1].putLong(uncovered);
+                buffers[2].putLong(flagged);
+            }
+            for (int p = 0; p < 3; p++) {
+                drain(channel, buffers[p], offsets[p]);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(game.getHeight()).putInt(game.getWidth())
+                    .putInt(game.getNumMines())
+                    .putInt((game.isStarted() ? STARTED : 0) | (game.isMineUncovered() ? MINE_UNCOVERED : 0)
+                            | (game.isSafeNeighborhood() ? SAFE_NEIGHBORHOOD : 0))
+                    .putLong(game.getSeed()).putInt(game.getNumFlaggedSquares())
+                    .putInt(squares - game.getNumMines() - game.getNumSafeRemaining()).putInt(flaggedMines);
+            header.position(HEADER_SIZE);
+            drain(channel, header, 0);
+            channel.force(false);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a saved game into memory.
+     *
+     * @param path The file to read
+     * @return The game, ready to carry on playing.
+     * @throws IOException If the file can't be read or isn't a saved game.
+     */
+    public static GameEngine load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel);
+            int height = header.getInt(HEIGHT), width = header.getInt(WIDTH), flags = header.getInt(FLAGS);
+            GameEngine game = new GameEngine(height, width, header.getInt(MINES), header.getLong(SEED));
+            game.setSafeNeighborhood((flags & SAFE_NEIGHBORHOOD) != 0);
+            long plane = planeBytes((long) height * width);
+            MappedByteBuffer planes = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, 3 * plane);
+            game.restore(planes.slice(0, (int) plane).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer(),
+                    planes.slice((int) plane, (int) plane).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer(),
+                    planes.slice((int) (2 * plane), (int) plane).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer(),
+                    (flags & STARTED) != 0, (flags & MINE_UNCOVERED) != 0);
+            return game;
+        }
+    }
+
+    /**
+     * Opens a saved game to be played straight from the file. Moves change the file as they are made.
+     *
+     * @param path The file to open
+     * @return The board, which should be closed when done with.
+     * @throws IOException If the file can't be opened or isn't a saved game.
+     */
+    public static MappedBoard map(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            readHeader(channel);
+            return new MappedBoard(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the header and checks that it describes a file of this format and the file's length.
+     *
+     * @return The header, little-endian.
+     */
+    static ByteBuffer readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("Not a saved game: the file is too short");
+            }
+        }
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not a saved game");
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Saved game version " + header.getInt(4) + " is not supported");
+        }
+        long squares = (long) header.getInt(HEIGHT) * header.getInt(WIDTH);
+        if (header.getInt(HEIGHT) <= 0 || header.getInt(WIDTH) <= 0 || squares > Integer.MAX_VALUE) {
+            throw new IOException("Saved game has a bad size: " + header.getInt(HEIGHT) + "x" + header.getInt(WIDTH));
+        }
+        if (channel.size() < HEADER_SIZE + 3 * planeBytes(squares)) {
+            throw new IOException("Saved game is truncated");
+        }
+        return header;
+    }
+
+    /**
+     * Writes out everything in the buffer at the given position in the file and empties it.
+     *
+     * @return The position just past what was written.
+     */
+    private static long drain(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        buffer.clear();
+        return position;
+    }
+}
@@ -0,0 +1,35 @@
+package minesweeper;
+
+/**
+ * Hears about every change to the squares of a {@link GameEngine}, straight from the moves that make them,
+ * set with {@link GameEngine#setCellListener}. Called on the thread making the move, after the change; the
+ * squares are described by their final state, so being told about a change twice does no harm.
+ * {@link ChangeFeed} turns the calls into a stream for spectators.
+ */
+public interface CellListener {
+    /**
+     * Safe squares were uncovered.
+     *
+     * @param squares Indexes of the squares ({@code row * width + col}); only the first count are valid
+     * @param count   The number of squares
+     */
+    void uncovered(int[] squares, int count);
+
+    /**
+     * A flag was put on or taken off a square.
+     *
+     * @param square  The square's index
+     * @param flagged Whether the square is flagged now
+     */
+    void flagged(int square, boolean flagged);
+
+    /**
+     * A mine was uncovered, which uncovers every unflagged square and ends the game.
+     */
+    void exploded();
+
+    /**
+     * Every square was covered again and the flags were taken off: a new game, a restart or a new deal.
+     */
+    void cleared();
+}
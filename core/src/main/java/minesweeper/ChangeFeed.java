@@ -0,0 +1,467 @@
+package minesweeper;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams the changes to a {@link GameEngine}'s squares to spectators, as compact binary frames published
+ * through the {@link Flow} API. The engine reports each change as it makes it ({@link CellListener}); the feed
+ * encodes it into a frame and queues the frame for every subscriber, which gets frames only as fast as it asks
+ * for them with {@link Flow.Subscription#request}.
+ *
+ * A subscriber starts with a snapshot frame holding the whole visible board, followed by the frames of every
+ * change from then on, so a spectator can join a game at any point. A subscriber that falls more than
+ * {@code maxQueued} frames behind has its queue replaced by a fresh snapshot, so a slow spectator costs a
+ * bounded amount of memory and never holds up the game. Frames describe squares by their final state, so
+ * a change that lands in both a snapshot and a later frame is harmless; {@link View} applies the frames.
+ *
+ * A frame is a run of events, each a type byte followed by varints (7 bits a byte, low bits first):
+ * <pre>
+ * CLEARED   height width mines                      every square covered and unflagged
+ * UNCOVERED count, then per square zigzag(index - previous index) * 16 + number
+ * FLAG      index * 2 + (1 if now flagged)
+ * LOST      count, then per mine (index - previous index - 1), in order; every other unflagged square is uncovered
+ * WON
+ * </pre>
+ * Moves are reported on the thread making them, and subscribers may join from any thread. Deliveries to each
+ * subscriber run on the given executor, one at a time.
+ */
+public class ChangeFeed implements Flow.Publisher<byte[]>, CellListener, AutoCloseable {
+    /** Event types. */
+    public static final byte CLEARED = 0, UNCOVERED = 1, FLAG = 2, LOST = 3, WON = 4;
+
+    private final GameEngine game;
+    private final Executor executor;
+    private final int maxQueued;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private byte[] buffer = new byte[256];
+    private int length;
+    private boolean won, closed;
+    private long frames, bytes, resyncs;
+
+    /**
+     * Starts reporting a game's changes.
+     *
+     * @param game      The game; the feed becomes its {@link CellListener}
+     * @param executor  Runs the deliveries to subscribers
+     * @param maxQueued How many frames a subscriber may fall behind before it is sent a snapshot instead
+     */
+    public ChangeFeed(GameEngine game, Executor executor, int maxQueued) {
+        this.game = game;
+        this.executor = executor;
+        this.maxQueued = maxQueued;
+        won = game.hasWon();
+        game.setCellListener(this);
+    }
+
+    /**
+     * Adds a spectator. Its first frame is a snapshot of the board as it is now.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super byte[]> subscriber) {
+        Subscription subscription = new Subscription(subscriber);
+        synchronized (this) {
+            if (!closed) {
+                subscription.offer(snapshot());
+                subscriptions.add(subscription);
+            } else {
+                subscription.finished = true;
+            }
+        }
+        subscriber.onSubscribe(subscription);
+        subscription.start();
+    }
+
+    @Override
+    public synchronized void uncovered(int[] squares, int count) {
+        putByte(UNCOVERED);
+        putUncovered(squares, count);
+        publish();
+    }
+
+    @Override
+    public synchronized void flagged(int square, boolean flagged) {
+        putByte(FLAG);
+        putVarint((long) square << 1 | (flagged ? 1 : 0));
+        publish();
+    }
+
+    @Override
+    public synchronized void exploded() {
+        putLost();
+        publish();
+    }
+
+    @Override
+    public synchronized void cleared() {
+        won = false;
+        putCleared();
+        publish();
+    }
+
+    /**
+     * Ends the stream: every subscriber gets onComplete once it has taken the frames already queued for it.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            game.setCellListener(null);
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.finished = true;
+            subscription.drain();
+        }
+    }
+
+    /** @return The number of change frames published, snapshots not included. */
+    public synchronized long getFrames() {
+        return frames;
+    }
+
+    /** @return The size of all the change frames published, in bytes. */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /** @return The number of times a subscriber fell too far behind and was sent a snapshot instead. */
+    public synchronized long getResyncs() {
+        return resyncs;
+    }
+
+    /**
+     * Encodes the whole visible board as one frame.
+     */
+    private byte[] snapshot() {
+        putCleared();
+        int size = game.getHeight() * game.getWidth();
+        int[] squares = new int[Math.max(1, size - game.getNumMines() - game.getNumSafeRemaining())];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int cell = game.cellAt(i);
+            if ((cell & (GameEngine.UNCOVERED | GameEngine.MINE)) == GameEngine.UNCOVERED && count < squares.length) {
+                squares[count++] = i;
+            }
+        }
+        putByte(UNCOVERED);
+        putUncovered(squares, count);
+        for (int i = 0; i < size; i++) {
+            if ((game.cellAt(i) & GameEngine.FLAGGED) != 0) {
+                putByte(FLAG);
+                putVarint((long) i << 1 | 1);
+            }
+        }
+        if (game.isMineUncovered()) {
+            putLost();
+        } else if (game.hasWon()) {
+            putByte(WON);
+        }
+        byte[] frame = Arrays.copyOf(buffer, length);
+        length = 0;
+        return frame;
+    }
+
+    /**
+     * Ends the frame being written, adding the win if this change won the game, and queues it for everyone.
+     */
+    private void publish() {
+        if (!won && game.hasWon()) {
+            won = true;
+            putByte(WON);
+        }
+        byte[] frame = Arrays.copyOf(buffer, length);
+        length = 0;
+        frames++;
+        bytes += frame.length;
+        for (Subscription subscription : subscriptions) {
+            if (!subscription.offer(frame)) {
+                subscription.resync(snapshot());
+                resyncs++;
+            }
+        }
+    }
+
+    private void putCleared() {
+        putByte(CLEARED);
+        putVarint(game.getHeight());
+        putVarint(game.getWidth());
+        putVarint(game.getNumMines());
+    }
+
+    private void putUncovered(int[] squares, int count) {
+        putVarint(count);
+        int previous = 0;
+        for (int k = 0; k < count; k++) {
+            int i = squares[k];
+            int delta = i - previous;
+            putVarint(((delta << 1 ^ delta >> 31) & 0xFFFFFFFFL) << 4 | game.cellAt(i) & GameEngine.COUNT_MASK);
+            previous = i;
+        }
+    }
+
+    private void putLost() {
+        putByte(LOST);
+        putVarint(game.getNumMines());
+        int previous = -1, size = game.getHeight() * game.getWidth();
+        for (int i = 0; i < size; i++) {
+            if ((game.cellAt(i) & GameEngine.MINE) != 0) {
+                putVarint(i - previous - 1);
+                previous = i;
+            }
+        }
+    }
+
+    private void putByte(int b) {
+        if (length == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        buffer[length++] = (byte) b;
+    }
+
+    private void putVarint(long value) {
+        if (length + 10 > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + 10));
+        }
+        while ((value & ~0x7FL) != 0) {
+            buffer[length++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+    }
+
+    /**
+     * One subscriber's queue of frames and the frames it has asked for. Frames are queued by the thread making
+     * the moves and delivered on the executor by a drain loop, which at most one thread runs at a time. Every
+     * signal after onSubscribe, errors included, comes from the drain loop, so no two of them ever overlap.
+     */
+    private final class Subscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super byte[]> subscriber;
+        private final ConcurrentLinkedQueue<byte[]> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicLong requested = new AtomicLong();
+        // Drains asked for and not yet run; starts at one to hold them all back until onSubscribe has returned
+        private final AtomicInteger work = new AtomicInteger(1);
+        private volatile boolean cancelled, finished;
+        private volatile Throwable error; // a bad request, to be signalled by the drain loop
+        private boolean completed; // onComplete or onError has been called
+
+        Subscription(Flow.Subscriber<? super byte[]> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        /**
+         * Queues a frame, unless the subscriber is already too far behind.
+         *
+         * @return False if the queue is full.
+         */
+        boolean offer(byte[] frame) {
+            if (queued.get() >= maxQueued) {
+                return false;
+            }
+            queued.incrementAndGet();
+            queue.offer(frame);
+            drain();
+            return true;
+        }
+
+        /**
+         * Drops the queued frames for a snapshot, which brings the subscriber up to date on its own.
+         */
+        void resync(byte[] snapshot) {
+            while (queue.poll() != null) {
+                queued.decrementAndGet();
+            }
+            queued.incrementAndGet();
+            queue.offer(snapshot);
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Requested " + n + " frames; must be positive");
+                cancel();
+                drain();
+                return;
+            }
+            requested.accumulateAndGet(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        void drain() {
+            if (work.getAndIncrement() == 0) {
+                executor.execute(this::run);
+            }
+        }
+
+        /**
+         * Lets the drain loop run, once onSubscribe has returned. The drain that was held back is this run.
+         */
+        void start() {
+            executor.execute(this::run);
+        }
+
+        private void run() {
+            int missed = 1;
+            do {
+                long wanted = requested.get(), sent = 0;
+                byte[] frame;
+                while (sent < wanted && !cancelled && (frame = queue.poll()) != null) {
+                    queued.decrementAndGet();
+                    subscriber.onNext(frame);
+                    sent++;
+                }
+                if (sent > 0) {
+                    requested.accumulateAndGet(sent, (a, b) -> a == Long.MAX_VALUE ? a : a - b);
+                }
+                if (error != null && !completed) {
+                    completed = true;
+                    subscriber.onError(error);
+                } else if (finished && !completed && !cancelled && queue.isEmpty()) {
+                    completed = true;
+                    subscriptions.remove(this);
+                    subscriber.onComplete();
+                }
+                missed = work.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+
+    /**
+     * A spectator's copy of the board, built from the frames alone. Each square holds what a player sees there,
+     * in the codes {@link GameServer} uses: 0 to 8 for an uncovered number, or a mine, flag or covered square.
+     */
+    public static class View {
+        private int height, width, mines;
+        private byte[] squares = new byte[0];
+        private boolean lost, won;
+
+        /**
+         * Applies one frame from the feed.
+         *
+         * @param frame The frame
+         */
+        public void apply(byte[] frame) {
+            int[] pos = { 0 };
+            while (pos[0] < frame.length) {
+                byte type = frame[pos[0]++];
+                switch (type) {
+                    case CLEARED:
+                        height = (int) readVarint(frame, pos);
+                        width = (int) readVarint(frame, pos);
+                        mines = (int) readVarint(frame, pos);
+                        if (squares.length != height * width) {
+                            squares = new byte[height * width];
+                        }
+                        Arrays.fill(squares, GameServer.COVERED_VIEW);
+                        lost = won = false;
+                        break;
+                    case UNCOVERED:
+                        int index = 0;
+                        for (long count = readVarint(frame, pos); count > 0; count--) {
+                            long value = readVarint(frame, pos);
+                            int zigzag = (int) (value >>> 4);
+                            index += zigzag >>> 1 ^ -(zigzag & 1);
+                            squares[index] = (byte) (value & 0x0F);
+                        }
+                        break;
+                    case FLAG:
+                        long flag = readVarint(frame, pos);
+                        squares[(int) (flag >>> 1)] = (flag & 1) != 0 ? GameServer.FLAG_VIEW : GameServer.COVERED_VIEW;
+                        break;
+                    case LOST:
+                        applyLost(frame, pos);
+                        break;
+                    case WON:
+                        won = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown event " + type);
+                }
+            }
+        }
+
+        /**
+         * Shows the mines and uncovers every other unflagged square, working out its number from the mines.
+         */
+        private void applyLost(byte[] frame, int[] pos) {
+            boolean[] mine = new boolean[squares.length];
+            int index = -1;
+            for (long count = readVarint(frame, pos); count > 0; count--) {
+                index += (int) readVarint(frame, pos) + 1;
+                mine[index] = true;
+            }
+            for (int i = 0; i < squares.length; i++) {
+                if (squares[i] == GameServer.FLAG_VIEW) continue;
+                if (mine[i]) {
+                    squares[i] = GameServer.MINE_VIEW;
+                } else if (squares[i] == GameServer.COVERED_VIEW) {
+                    int r = i / width, c = i % width, count = 0;
+                    for (int nr = Math.max(0, r - 1); nr <= Math.min(height - 1, r + 1); nr++) {
+                        for (int nc = Math.max(0, c - 1); nc <= Math.min(width - 1, c + 1); nc++) {
+                            if (mine[nr * width + nc]) count++;
+                        }
+                    }
+                    squares[i] = (byte) count;
+                }
+            }
+            lost = true;
+        }
+
+        private static long readVarint(byte[] frame, int[] pos) {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = frame[pos[0]++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        /** @return The number of rows. */
+        public int getHeight() {
+            return height;
+        }
+
+        /** @return The number of columns. */
+        public int getWidth() {
+            return width;
+        }
+
+        /** @return The number of mines. */
+        public int getNumMines() {
+            return mines;
+        }
+
+        /**
+         * @param i The square's index
+         * @return What a player sees there.
+         */
+        public byte get(int i) {
+            return squares[i];
+        }
+
+        /** @return Whether a mine has been uncovered. */
+        public boolean isLost() {
+            return lost;
+        }
+
+        /** @return Whether the game has been won. */
+        public boolean isWon() {
+            return won;
+        }
+    }
+}
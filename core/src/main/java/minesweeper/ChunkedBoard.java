@@ -0,0 +1,505 @@
+package minesweeper;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A board with no edges, for the infinite mode. Rows and columns run over the whole int range, and the
+ * board is split into chunks of 64x64 squares that only exist once a move or the viewport touches them.
+ *
+ * Whether a square is a mine is a hash of the seed and its position, so any chunk can be dealt on its own and
+ * always gets the same mines, and a chunk's neighbor counts can look across its borders without dealing the
+ * chunks next to it. The first square revealed and the squares around it are kept free of mines.
+ *
+ * A chunk in memory ("live") holds a byte per square in {@link GameEngine}'s packed layout. Live chunks are
+ * kept in least-recently-used order, and after each move the oldest ones beyond the chunk budget are moved
+ * out, except those in the viewport. A chunk no move has changed is simply dropped, since it can be dealt again.
+ * Any other chunk is stored in a compact form: nothing at all for a solved chunk (every safe square uncovered,
+ * every mine flagged, nothing else flagged), otherwise its uncovered and flagged bits, 1 KB instead of 4. Memory
+ * therefore grows with the area explored, and mostly with the part of it that isn't solved.
+ *
+ * Clusters of empty squares are finite at the densities allowed, but a single reveal still stops spreading after
+ * {@link #MAX_FILL} squares; empty squares at the edge of such a fill stay uncovered without opening their
+ * neighbors, which can then be clicked as usual.
+ *
+ * Run with: java -cp core/target/minesweeper-core-1.0-SNAPSHOT.jar minesweeper.ChunkedBoard [--moves N]
+ * [--budget CHUNKS] to explore a board and print moves per second and memory use.
+ */
+public class ChunkedBoard {
+    static final int CHUNK_BITS = 6;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int CHUNK_SQUARES = CHUNK_SIZE * CHUNK_SIZE;
+    static final int MAX_FILL = 1 << 20;
+    private static final int DEFAULT_BUDGET = 4096; // about 16 MB of live chunks
+    private static final long[] SOLVED = new long[0];
+
+    private final long seed;
+    private final long threshold;
+    private final Map<Long, Chunk> live = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<Long, long[]> stored = new HashMap<>();
+    private int budget = DEFAULT_BUDGET;
+    private int viewTop, viewLeft, viewBottom = -1, viewRight = -1;
+    private boolean started, mineUncovered, hasSafeBlock;
+    private int safeRow, safeCol;
+    private long numUncovered, numFlagged;
+    private long[] queue = new long[64];
+
+    /**
+     * Constructs an infinite board.
+     *
+     * @param seed    Seed the mines are placed from
+     * @param density Chance of each square being a mine, from 0.1 to 0.9
+     */
+    public ChunkedBoard(long seed, double density) {
+        if (!(density >= 0.1 && density <= 0.9)) {
+            throw new IllegalArgumentException("Mine density must be from 0.1 to 0.9, not " + density);
+        }
+        this.seed = seed;
+        this.threshold = (long) (density * (1L << 53));
+    }
+
+    /**
+     * Sets how many chunks may stay in memory after a move, not counting those in the viewport.
+     *
+     * @param budget Number of live chunks
+     */
+    public void setChunkBudget(int budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Tells the board which squares are on screen, so their chunks are never moved out of memory.
+     * Chunks are dealt as they are drawn.
+     *
+     * @param top    First visible row
+     * @param left   First visible column
+     * @param bottom Last visible row
+     * @param right  Last visible column
+     */
+    public void setViewport(int top, int left, int bottom, int right) {
+        viewTop = top >> CHUNK_BITS;
+        viewLeft = left >> CHUNK_BITS;
+        viewBottom = bottom >> CHUNK_BITS;
+        viewRight = right >> CHUNK_BITS;
+        trim();
+    }
+
+    /** @return The seed the mines are placed from. */
+    public long getSeed() {
+        return seed;
+    }
+
+    /** @return Whether the first square has been revealed; flags alone don't start a game. */
+    public boolean isStarted() {
+        return started;
+    }
+
+    /** @return Whether a mine has been uncovered, which ends the game. */
+    public boolean isMineUncovered() {
+        return mineUncovered;
+    }
+
+    /** @return The number of safe squares uncovered so far. */
+    public long getNumUncovered() {
+        return numUncovered;
+    }
+
+    /** @return The number of flagged squares. */
+    public long getNumFlagged() {
+        return numFlagged;
+    }
+
+    /** @return The number of chunks held in full in memory. */
+    public int getLiveChunks() {
+        return live.size();
+    }
+
+    /** @return The number of chunks held in compact form. */
+    public int getStoredChunks() {
+        return stored.size();
+    }
+
+    /** @return The number of bytes of bit-planes held for chunks in compact form. */
+    public long getStoredBytes() {
+        long bytes = 0;
+        for (long[] bits : stored.values()) {
+            bytes += bits.length * 8L;
+        }
+        return bytes;
+    }
+
+    /**
+     * @param r Row index
+     * @param c Column index
+     * @return The packed state of the square, as {@link GameEngine#cellAt(int)} gives it. Deals the square's chunk
+     *         if this is the first time it is touched.
+     */
+    public byte cellAt(int r, int c) {
+        return chunk(r, c).cells[offset(r, c)];
+    }
+
+    /**
+     * Reveals a square as a player's move. The first reveal keeps the square and the eight around it free of mines,
+     * whatever has been flagged before it. Flagged or already uncovered squares are left alone, and so is every
+     * square once a mine has been uncovered.
+     *
+     * @param r Row index
+     * @param c Column index
+     * @return The number of squares uncovered, or -1 if a mine was uncovered.
+     */
+    public int reveal(int r, int c) {
+        if (mineUncovered) {
+            return 0;
+        }
+        if (!started) {
+            started = true;
+            hasSafeBlock = true;
+            safeRow = r;
+            safeCol = c;
+            redealAround(r, c);
+        }
+        Chunk chunk = chunk(r, c);
+        int i = offset(r, c);
+        int cell = chunk.cells[i];
+        if ((cell & (GameEngine.FLAGGED | GameEngine.UNCOVERED)) != 0) {
+            return 0;
+        }
+        chunk.uncover(i);
+        if ((cell & GameEngine.MINE) != 0) {
+            mineUncovered = true;
+            trim();
+            return -1;
+        }
+        int uncovered = fill(r, c);
+        trim();
+        return uncovered;
+    }
+
+    /**
+     * Flags or unflags a covered square as a player's move. Ignored once a mine has been uncovered.
+     *
+     * @param r Row index
+     * @param c Column index
+     * @return True if the flag changed; false if the square is uncovered or the game is over.
+     */
+    public boolean toggleFlag(int r, int c) {
+        Chunk chunk = chunk(r, c);
+        int i = offset(r, c);
+        if (mineUncovered || (chunk.cells[i] & GameEngine.UNCOVERED) != 0) {
+            return false;
+        }
+        chunk.cells[i] ^= GameEngine.FLAGGED;
+        chunk.changed = true;
+        boolean flagged = (chunk.cells[i] & GameEngine.FLAGGED) != 0;
+        chunk.open += flagged ? -1 : 1;
+        numFlagged += flagged ? 1 : -1;
+        trim();
+        return true;
+    }
+
+    /**
+     * Chords an uncovered number as a player's move, as {@link GameEngine#chord} does: if as many of its
+     * neighbors are flagged as its number says, every other covered neighbor is revealed. A wrong flag means one
+     * of those is a mine, which is uncovered and ends the game. Anything else is left alone.
+     *
+     * @param r Row index
+     * @param c Column index
+     * @return The number of squares uncovered, or -1 if a mine was uncovered.
+     */
+    public int chord(int r, int c) {
+        int center = cellAt(r, c);
+        if (mineUncovered || (center & (GameEngine.UNCOVERED | GameEngine.MINE)) != GameEngine.UNCOVERED
+                || (center & GameEngine.COUNT_MASK) == 0) {
+            return 0;
+        }
+        int flags = 0;
+        boolean hitsMine = false;
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                int cell = cellAt(r + dr, c + dc);
+                if ((cell & GameEngine.FLAGGED) != 0) {
+                    flags++;
+                } else if ((cell & (GameEngine.UNCOVERED | GameEngine.MINE)) == GameEngine.MINE) {
+                    hitsMine = true;
+                }
+            }
+        }
+        if (flags != (center & GameEngine.COUNT_MASK)) {
+            return 0;
+        }
+
+        int uncovered = 0;
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                int nr = r + dr, nc = c + dc;
+                Chunk chunk = chunk(nr, nc);
+                int i = offset(nr, nc);
+                int cell = chunk.cells[i];
+                // On a wrong chord only the mines are uncovered, as a reveal of one of them would
+                if ((cell & (GameEngine.UNCOVERED | GameEngine.FLAGGED)) != 0
+                        || hitsMine && (cell & GameEngine.MINE) == 0) {
+                    continue;
+                }
+                chunk.uncover(i);
+                if (!hitsMine) {
+                    uncovered += fill(nr, nc);
+                }
+            }
+        }
+        if (hitsMine) {
+            mineUncovered = true;
+        }
+        trim();
+        return hitsMine ? -1 : uncovered;
+    }
+
+    /**
+     * Deals the live chunks near the first reveal again now that its safe block is known, keeping their flags.
+     * Only chunks within two squares of the reveal can change: the safe block itself and the counts next to it.
+     * Chunks moved out of memory are dealt again when they come back anyway, and keep only their flags.
+     */
+    private void redealAround(int r, int c) {
+        int top = (r - 2) >> CHUNK_BITS, bottom = (r + 2) >> CHUNK_BITS;
+        int left = (c - 2) >> CHUNK_BITS, right = (c + 2) >> CHUNK_BITS;
+        for (int cy : top == bottom ? new int[] { top } : new int[] { top, bottom }) {
+            for (int cx : left == right ? new int[] { left } : new int[] { left, right }) {
+                Long key = key(cy, cx);
+                Chunk old = live.get(key);
+                if (old == null) {
+                    continue;
+                }
+                Chunk chunk = new Chunk(cy, cx);
+                for (int i = 0; i < CHUNK_SQUARES; i++) {
+                    if ((old.cells[i] & GameEngine.FLAGGED) != 0) {
+                        chunk.cells[i] |= GameEngine.FLAGGED;
+                        chunk.open--;
+                        chunk.changed = true;
+                    }
+                }
+                live.put(key, chunk);
+            }
+        }
+    }
+
+    /**
+     * Spreads out breadth-first from a square just uncovered, through connected empty squares and across chunks.
+     *
+     * @return The number of squares uncovered, the first one included.
+     */
+    private int fill(int row, int col) {
+        long[] queue = this.queue;
+        queue[0] = pack(row, col);
+        int tail = 1;
+        for (int head = 0; head < tail; head++) {
+            int r = (int) (queue[head] >> 32), c = (int) queue[head];
+            if ((cellAt(r, c) & GameEngine.COUNT_MASK) != 0 || tail > MAX_FILL) {
+                continue;
+            }
+            if (tail + 8 > queue.length) {
+                queue = Arrays.copyOf(queue, queue.length * 2);
+            }
+            for (int dr = -1; dr <= 1; dr++) {
+                for (int dc = -1; dc <= 1; dc++) {
+                    int nr = r + dr, nc = c + dc;
+                    Chunk chunk = chunk(nr, nc);
+                    int i = offset(nr, nc);
+                    // A square next to an empty square can't be a mine, so only the state bits matter
+                    if ((chunk.cells[i] & (GameEngine.UNCOVERED | GameEngine.FLAGGED)) == 0) {
+                        chunk.uncover(i);
+                        queue[tail++] = pack(nr, nc);
+                    }
+                }
+            }
+        }
+        this.queue = queue;
+        numUncovered += tail;
+        return tail;
+    }
+
+    /**
+     * Moves the least recently used chunks out of memory until no more than the budget are left,
+     * skipping those in the viewport.
+     */
+    private void trim() {
+        Iterator<Map.Entry<Long, Chunk>> it = live.entrySet().iterator();
+        int excess = live.size() - budget;
+        while (excess > 0 && it.hasNext()) {
+            Chunk chunk = it.next().getValue();
+            if (chunk.cy >= viewTop && chunk.cy <= viewBottom && chunk.cx >= viewLeft && chunk.cx <= viewRight) {
+                continue;
+            }
+            it.remove();
+            excess--;
+            if (chunk.changed) {
+                stored.put(key(chunk.cy, chunk.cx), chunk.compact());
+            }
+        }
+    }
+
+    /**
+     * @return The chunk holding a square, taken from memory, rebuilt from its compact form or dealt fresh.
+     */
+    private Chunk chunk(int r, int c) {
+        int cy = r >> CHUNK_BITS, cx = c >> CHUNK_BITS;
+        Long key = key(cy, cx);
+        Chunk chunk = live.get(key);
+        if (chunk == null) {
+            chunk = new Chunk(cy, cx);
+            long[] bits = stored.remove(key);
+            if (bits != null) {
+                chunk.restore(bits);
+            }
+            live.put(key, chunk);
+        }
+        return chunk;
+    }
+
+    /**
+     * @return Whether the square at the given position is a mine.
+     */
+    private boolean isMine(int r, int c) {
+        if (hasSafeBlock && Math.abs((long) r - safeRow) <= 1 && Math.abs((long) c - safeCol) <= 1) {
+            return false;
+        }
+        long z = seed ^ r * 0x9E3779B97F4A7C15L ^ c * 0xC2B2AE3D27D4EB4FL;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return (z ^ (z >>> 31)) >>> 11 < threshold;
+    }
+
+    private static int offset(int r, int c) {
+        return (r & CHUNK_MASK) << CHUNK_BITS | (c & CHUNK_MASK);
+    }
+
+    private static long key(int cy, int cx) {
+        return (long) cy << 32 | (cx & 0xFFFFFFFFL);
+    }
+
+    private static long pack(int r, int c) {
+        return (long) r << 32 | (c & 0xFFFFFFFFL);
+    }
+
+    /**
+     * A 64x64 block of squares held in full.
+     */
+    private final class Chunk {
+        final int cy, cx;
+        final byte[] cells = new byte[CHUNK_SQUARES];
+        int open = CHUNK_SQUARES; // squares neither uncovered nor flagged
+        boolean changed;
+
+        /**
+         * Deals the chunk: its mines, and the neighbor counts, which look one square into the chunks around it.
+         */
+        Chunk(int cy, int cx) {
+            this.cy = cy;
+            this.cx = cx;
+            int top = cy << CHUNK_BITS, left = cx << CHUNK_BITS;
+            int span = CHUNK_SIZE + 2;
+            boolean[] mines = new boolean[span * span];
+            for (int y = 0; y < span; y++) {
+                for (int x = 0; x < span; x++) {
+                    mines[y * span + x] = isMine(top + y - 1, left + x - 1);
+                }
+            }
+            for (int y = 0; y < CHUNK_SIZE; y++) {
+                for (int x = 0; x < CHUNK_SIZE; x++) {
+                    int count = 0;
+                    for (int k = y * span + x, dy = 0; dy < 3; dy++, k += span) {
+                        count += (mines[k] ? 1 : 0) + (mines[k + 1] ? 1 : 0) + (mines[k + 2] ? 1 : 0);
+                    }
+                    boolean mine = mines[(y + 1) * span + x + 1];
+                    cells[y << CHUNK_BITS | x] = (byte) (mine ? GameEngine.MINE | count - 1 : count);
+                }
+            }
+        }
+
+        void uncover(int i) {
+            cells[i] |= GameEngine.UNCOVERED;
+            open--;
+            changed = true;
+        }
+
+        /**
+         * @return The uncovered bits then the flagged bits, a word per row, or an empty array if the chunk is solved.
+         */
+        long[] compact() {
+            long[] bits = new long[2 * CHUNK_SIZE];
+            boolean solved = open == 0;
+            for (int i = 0; i < CHUNK_SQUARES; i++) {
+                int cell = cells[i];
+                if ((cell & GameEngine.UNCOVERED) != 0) bits[i >> CHUNK_BITS] |= 1L << i;
+                if ((cell & GameEngine.FLAGGED) != 0) bits[CHUNK_SIZE + (i >> CHUNK_BITS)] |= 1L << i;
+                if (((cell & GameEngine.MINE) != 0) != ((cell & GameEngine.FLAGGED) != 0)) solved = false;
+            }
+            return solved ? SOLVED : bits;
+        }
+
+        /**
+         * Puts back the state saved by {@link #compact()}.
+         */
+        void restore(long[] bits) {
+            for (int i = 0; i < CHUNK_SQUARES; i++) {
+                int cell = cells[i];
+                boolean uncovered, flagged;
+                if (bits == SOLVED) {
+                    flagged = (cell & GameEngine.MINE) != 0;
+                    uncovered = !flagged;
+                } else {
+                    uncovered = (bits[i >> CHUNK_BITS] >>> i & 1) != 0;
+                    flagged = (bits[CHUNK_SIZE + (i >> CHUNK_BITS)] >>> i & 1) != 0;
+                }
+                cells[i] = (byte) (cell | (uncovered ? GameEngine.UNCOVERED : 0) | (flagged ? GameEngine.FLAGGED : 0));
+                if (uncovered || flagged) open--;
+            }
+            changed = true;
+        }
+    }
+
+    public static void main(String[] args) {
+        int moves = 200_000, budget = 1024;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--moves": moves = Integer.parseInt(args[++i]); break;
+                case "--budget": budget = Integer.parseInt(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        // A player who knows where the mines are sweeps a screen-sized window that wanders across the board,
+        // flagging mines and revealing safe squares, so the solved area keeps growing
+        ChunkedBoard board = new ChunkedBoard(1, 0.18);
+        board.setChunkBudget(budget);
+        long state = 42;
+        int row = 0, col = 0;
+        long start = System.nanoTime();
+        for (int move = 0; move < moves; move++) {
+            if (move % 2000 == 0) {
+                state = state * 6364136223846793005L + 1442695040888963407L;
+                row += (int) (state >>> 60) * 16 - 120;
+                col += (int) (state >>> 56 & 15) * 16 - 120;
+                board.setViewport(row, col, row + 30, col + 40);
+            }
+            state = state * 6364136223846793005L + 1442695040888963407L;
+            int r = row + (int) ((state >>> 33) % 31), c = col + (int) ((state >>> 13) % 41);
+            byte cell = board.cellAt(r, c);
+            if (move == 0 || (cell & GameEngine.MINE) == 0) {
+                board.reveal(r, c);
+            } else if ((cell & GameEngine.FLAGGED) == 0) {
+                board.toggleFlag(r, c);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Runtime rt = Runtime.getRuntime();
+        System.gc();
+        System.out.printf("%,d moves in %.2f s: %,.0f moves/s, %,d squares uncovered, %s%n", moves, seconds,
+                moves / seconds, board.getNumUncovered(), board.isMineUncovered() ? "lost" : "still going");
+        System.out.printf("%,d live chunks (%,d KB), %,d stored chunks (%,d KB), heap in use %,d KB%n",
+                board.getLiveChunks(), board.getLiveChunks() * (long) CHUNK_SQUARES / 1024, board.getStoredChunks(),
+                board.getStoredBytes() / 1024, (rt.totalMemory() - rt.freeMemory()) / 1024);
+    }
+}
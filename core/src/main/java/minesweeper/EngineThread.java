@@ -0,0 +1,341 @@
+package minesweeper;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Applies the moves of one game on a thread of its own, so that a flood fill over millions of squares or a long
+ * search for a no-guess board never holds up the thread that posted the move, such as the Swing event thread.
+ *
+ * The engine thread is the only one that changes the board. Moves and other work are posted to a lock-free
+ * {@link ConcurrentLinkedQueue} and the thread parks while the queue is empty. It takes everything that is
+ * waiting in one go and applies it as a batch, then publishes a {@link Snapshot}: an immutable copy of the
+ * counts and flags a status line needs, with a version number and the block of squares the batch changed.
+ * If the listener hasn't taken the last snapshot yet, the new one is merged into it, so however many batches
+ * run between two frames the listener is called once with their combined changes.
+ *
+ * Reveals and chords that are already waiting in the queue for the same square are dropped when posted again,
+ * since applying them twice changes nothing; flags are never dropped, as two of them cancel out. A flag posted
+ * in between can change what the second one does, so posting a flag forgets the waiting reveal of its square and
+ * the waiting chords around it, and those are queued again when posted again.
+ *
+ * Readers on other threads may look at the board's squares at any time, for painting. Each square is a
+ * single byte or bit, so it is always either before or after a move, and everything up to a snapshot's
+ * version is visible to whoever has read the snapshot. A batch still running shows up as partly done.
+ */
+public final class EngineThread implements AutoCloseable {
+    private final Grid grid;
+    private final Board board;
+    private final Thread thread;
+    private final ConcurrentLinkedQueue<Object> queue = new ConcurrentLinkedQueue<>(); // Move or Runnable
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet(); // reveals and chords still in the queue
+    private final AtomicReference<Snapshot> unpublished = new AtomicReference<>();
+    private final int[] dirtyBounds = new int[4];
+    private volatile Snapshot latest;
+    private volatile boolean closed;
+    private Consumer<Snapshot> listener = snapshot -> {};
+    private Executor listenerExecutor = Runnable::run;
+    private MoveObserver observer = (op, row, col, result) -> {};
+    private long version;
+
+    /**
+     * Something that needs to see each move on the engine thread, right after it is applied.
+     */
+    public interface MoveObserver {
+        /**
+         * @param op     {@link ReplayWriter#REVEAL}, {@link ReplayWriter#FLAG} or {@link ReplayWriter#CHORD}
+         * @param row    Row index
+         * @param col    Column index
+         * @param result What the move returned: squares uncovered (-1 for a mine), or 1 if a flag changed
+         */
+        void moveApplied(int op, int row, int col, int result);
+    }
+
+    /**
+     * Starts the engine thread for a grid's board. From now on only the engine thread may make moves on it.
+     *
+     * @param grid The grid whose board to play; moves go through it, so they are recorded if it has a recorder
+     */
+    public EngineThread(Grid grid) {
+        this.grid = grid;
+        this.board = grid.getBoard();
+        latest = new Snapshot(0, board.isStarted(), board.isMineUncovered(), board.hasWon(),
+                board.getNumFlaggedSquares(), board.getNumSafeRemaining(), 0, null);
+        thread = new Thread(this::run, "minesweeper-engine");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Sets who hears about the moves once they are applied. Call before posting any moves.
+     *
+     * @param listener Gets each snapshot; called once per run of the executor, with every change since the last call
+     * @param executor Runs the listener, such as {@code SwingUtilities::invokeLater}
+     */
+    public void setListener(Consumer<Snapshot> listener, Executor executor) {
+        this.listener = listener;
+        this.listenerExecutor = executor;
+    }
+
+    /**
+     * Sets what is told about each move on the engine thread. Call before posting any moves.
+     *
+     * @param observer The observer
+     */
+    public void setObserver(MoveObserver observer) {
+        this.observer = observer;
+    }
+
+    /**
+     * Posts a move. It is applied later on the engine thread; this call never waits.
+     *
+     * @param op  {@link ReplayWriter#REVEAL}, {@link ReplayWriter#FLAG} or {@link ReplayWriter#CHORD}
+     * @param row Row index
+     * @param col Column index
+     * @return False if the move was dropped because the same reveal or chord is already waiting.
+     */
+    public boolean post(int op, int row, int col) {
+        if (op == ReplayWriter.FLAG) {
+            forgetPending(row, col);
+        } else if (!pending.add(key(op, row, col))) {
+            return false;
+        }
+        queue.offer(new Move(op, row, col));
+        LockSupport.unpark(thread);
+        return true;
+    }
+
+    /**
+     * Runs other work that touches the board, such as saving it, on the engine thread after the moves
+     * already posted. Its changes are published like a move's.
+     *
+     * @param task The work
+     */
+    public void execute(Runnable task) {
+        queue.offer(task);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * @return The last snapshot published; it may be a batch or so behind the board.
+     */
+    public Snapshot getLatest() {
+        return latest;
+    }
+
+    /**
+     * Tells the engine thread to stop once it has applied everything already posted, without waiting for it.
+     * A move that is running, such as a flood fill over millions of squares, carries on to its end first.
+     */
+    public void shutdown() {
+        closed = true;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Stops the engine thread once it has applied everything already posted, and waits for it. If the waiting
+     * thread is interrupted, it stops waiting and keeps its interrupt status; the engine thread still stops.
+     */
+    @Override
+    public void close() {
+        shutdown();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Object item = queue.poll();
+            if (item == null) {
+                if (closed) {
+                    return;
+                }
+                LockSupport.park(this);
+                continue;
+            }
+            int uncovered = 0;
+            do {
+                try {
+                    uncovered += Math.max(0, apply(item));
+                } catch (RuntimeException e) {
+                    System.err.println("Move failed: " + e);
+                }
+            } while ((item = queue.poll()) != null);
+            publish(snapshot(uncovered));
+        }
+    }
+
+    /**
+     * Applies one move or task.
+     *
+     * @return The squares a move uncovered, or 0.
+     */
+    private int apply(Object item) {
+        if (item instanceof Runnable) {
+            ((Runnable) item).run();
+            return 0;
+        }
+        Move move = (Move) item;
+        if (move.op != ReplayWriter.FLAG) {
+            pending.remove(key(move.op, move.row, move.col));
+        }
+        int result;
+        switch (move.op) {
+            case ReplayWriter.REVEAL: result = grid.reveal(move.row, move.col); break;
+            case ReplayWriter.CHORD: result = grid.chord(move.row, move.col); break;
+            default: result = grid.toggleFlag(move.row, move.col) ? 1 : 0; break;
+        }
+        observer.moveApplied(move.op, move.row, move.col, result);
+        return move.op == ReplayWriter.FLAG ? 0 : result;
+    }
+
+    /**
+     * Hands a snapshot to the listener, merged into the one it hasn't taken yet if there is one.
+     */
+    private void publish(Snapshot snapshot) {
+        latest = snapshot;
+        if (unpublished.getAndAccumulate(snapshot, (earlier, later) -> later.merge(earlier)) == null) {
+            listenerExecutor.execute(() -> {
+                Snapshot next = unpublished.getAndSet(null);
+                if (next != null) {
+                    listener.accept(next);
+                }
+            });
+        }
+    }
+
+    /**
+     * Takes a snapshot of the board after a batch, taking over its dirty block.
+     */
+    private Snapshot snapshot(int uncovered) {
+        boolean dirty = board.takeDirtyBounds(dirtyBounds);
+        return new Snapshot(++version, board.isStarted(), board.isMineUncovered(), board.hasWon(),
+                board.getNumFlaggedSquares(), board.getNumSafeRemaining(), uncovered, dirty ? dirtyBounds.clone() : null);
+    }
+
+    /**
+     * Stops matching new reveals and chords against those already waiting that a flag on the given square could
+     * change: the reveal of the square itself, and the chords of it and the squares around it.
+     */
+    private void forgetPending(int row, int col) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        pending.remove(key(ReplayWriter.REVEAL, row, col));
+        int rowEnd = Math.min(board.getHeight() - 1, row + 1), colEnd = Math.min(board.getWidth() - 1, col + 1);
+        for (int r = Math.max(0, row - 1); r <= rowEnd; r++) {
+            for (int c = Math.max(0, col - 1); c <= colEnd; c++) {
+                pending.remove(key(ReplayWriter.CHORD, r, c));
+            }
+        }
+    }
+
+    private static long key(int op, int row, int col) {
+        return (long) row << 34 | (long) col << 2 | op; // rows and columns both fit in 31 bits
+    }
+
+    private static final class Move {
+        final int op, row, col;
+
+        Move(int op, int row, int col) {
+            this.op = op;
+            this.row = row;
+            this.col = col;
+        }
+    }
+
+    /**
+     * The state of the game after a batch of moves, and what the batch changed. Immutable.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final boolean started, mineUncovered, won;
+        private final int numFlaggedSquares, numSafeRemaining, uncovered;
+        private final int[] dirty; // first row, first column, last row, last column; null if nothing changed
+
+        Snapshot(long version, boolean started, boolean mineUncovered, boolean won, int numFlaggedSquares,
+                 int numSafeRemaining, int uncovered, int[] dirty) {
+            this.version = version;
+            this.started = started;
+            this.mineUncovered = mineUncovered;
+            this.won = won;
+            this.numFlaggedSquares = numFlaggedSquares;
+            this.numSafeRemaining = numSafeRemaining;
+            this.uncovered = uncovered;
+            this.dirty = dirty;
+        }
+
+        /** @return The number of batches applied before this snapshot was taken. */
+        public long getVersion() {
+            return version;
+        }
+
+        /** @return Whether the game has started. */
+        public boolean isStarted() {
+            return started;
+        }
+
+        /** @return Whether a mine has been uncovered. */
+        public boolean isMineUncovered() {
+            return mineUncovered;
+        }
+
+        /** @return Whether the game has been won. */
+        public boolean hasWon() {
+            return won;
+        }
+
+        /** @return Whether the game is over, won or lost. */
+        public boolean isGameOver() {
+            return mineUncovered || won;
+        }
+
+        /** @return The number of flagged squares. */
+        public int getNumFlaggedSquares() {
+            return numFlaggedSquares;
+        }
+
+        /** @return The number of safe squares still covered. */
+        public int getNumSafeRemaining() {
+            return numSafeRemaining;
+        }
+
+        /** @return The squares uncovered by the batches this snapshot covers. */
+        public int getUncovered() {
+            return uncovered;
+        }
+
+        /**
+         * @return The block of squares the batches changed, as first row, first column, last row and last
+         *         column, or null if they changed none.
+         */
+        public int[] getDirtyBounds() {
+            return dirty == null ? null : dirty.clone();
+        }
+
+        /**
+         * @return This later snapshot with the changes of an earlier one folded in; the earlier one may be null.
+         */
+        private Snapshot merge(Snapshot earlier) {
+            if (earlier == null) {
+                return this;
+            }
+            int[] bounds = dirty;
+            if (earlier.dirty != null) {
+                bounds = dirty == null ? earlier.dirty : new int[] {
+                        Math.min(dirty[0], earlier.dirty[0]), Math.min(dirty[1], earlier.dirty[1]),
+                        Math.max(dirty[2], earlier.dirty[2]), Math.max(dirty[3], earlier.dirty[3]) };
+            }
+            return new Snapshot(version, started, mineUncovered, won, numFlaggedSquares, numSafeRemaining,
+                    uncovered + earlier.uncovered, bounds);
+        }
+    }
+}
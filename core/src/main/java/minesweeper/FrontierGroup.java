@@ -0,0 +1,353 @@
+package minesweeper;
+
+import java.util.Arrays;
+
+/**
+ * A connected group of frontier squares (covered squares the {@link Solver} knows nothing about, next to
+ * an uncovered number) together with the numbers that constrain them, and the count of every placement
+ * of mines over the group that satisfies those numbers.
+ *
+ * Squares next to exactly the same numbers are interchangeable, so they are enumerated together as a
+ * class: only the number of mines in the class matters, and a class of s squares holding m mines stands
+ * for (s choose m) placements. Results are kept for every total number of mines in the group, so the
+ * caller can weigh them against the mines left on the rest of the board.
+ *
+ * A group is filled in by the solver and then only read, so groups can be enumerated on different threads.
+ * Two groups are equal when they hold the same squares and numbers with the same mines left to find,
+ * which is what lets {@link MineProbabilities} reuse the results for groups a move didn't touch.
+ */
+final class FrontierGroup {
+    /** Binomial coefficients up to 8 choose 8, the most squares a class can hold. */
+    private static final double[][] CHOOSE = new double[9][9];
+
+    static {
+        for (int n = 0; n <= 8; n++) {
+            CHOOSE[n][0] = 1;
+            for (int k = 1; k <= n; k++) {
+                CHOOSE[n][k] = CHOOSE[n - 1][k - 1] + (k < n ? CHOOSE[n - 1][k] : 0);
+            }
+        }
+    }
+
+    private int[] cells = new int[16];
+    private int cellCount;
+    private int[] hashKeys = new int[64], hashValues = new int[64];
+
+    private int[] numbers = new int[16], numberRemaining = new int[16], numberLength = new int[16];
+    private int numberCount;
+    private int[] cellNumbers = new int[16 * 8], cellNumberLength = new int[16];
+
+    private int[] cellClass = new int[16], classSize = new int[16], classFirstCell = new int[16];
+    private int classCount;
+
+    // Enumeration state and results
+    private int[] assignedMines = new int[16], unassigned = new int[16], assignment = new int[16];
+    private double[] solutions = new double[17];
+    private double[] classMines = new double[17 * 16];
+    private int maxMines;
+    private long steps, maxSteps;
+    private boolean complete;
+    private int[] key;
+
+    /**
+     * Empties the group so it can be filled again, keeping its memory.
+     */
+    void clear() {
+        cellCount = numberCount = 0;
+        Arrays.fill(hashKeys, -1);
+        complete = false;
+        key = null;
+    }
+
+    /**
+     * Adds a frontier square. All squares must be added before the numbers.
+     *
+     * @param square Index of the square, row * width + col
+     */
+    void addCell(int square) {
+        if ((cellCount + 1) * 2 > hashKeys.length) {
+            hashKeys = new int[hashKeys.length * 2];
+            hashValues = new int[hashKeys.length];
+            Arrays.fill(hashKeys, -1);
+            for (int k = 0; k < cellCount; k++) {
+                hashPut(cells[k], k);
+            }
+        }
+        cells = grow(cells, cellCount + 1);
+        hashPut(square, cellCount);
+        cells[cellCount++] = square;
+    }
+
+    /**
+     * Adds a number and the frontier squares around it.
+     *
+     * @param square    Index of the number, row * width + col
+     * @param remaining Mines around it the solver hasn't found yet
+     * @param unknowns  Indexes of its frontier squares, all already added with {@link #addCell(int)}
+     * @param count     Number of entries of unknowns to use
+     */
+    void addNumber(int square, int remaining, int[] unknowns, int count) {
+        numbers = grow(numbers, numberCount + 1);
+        numberRemaining = grow(numberRemaining, numberCount + 1);
+        numberLength = grow(numberLength, numberCount + 1);
+        cellNumbers = grow(cellNumbers, cellCount * 8);
+        cellNumberLength = grow(cellNumberLength, cellCount);
+        if (numberCount == 0) {
+            Arrays.fill(cellNumberLength, 0, cellCount, 0);
+        }
+        for (int k = 0; k < count; k++) {
+            int local = hashGet(unknowns[k]);
+            cellNumbers[local * 8 + cellNumberLength[local]++] = numberCount;
+        }
+        numbers[numberCount] = square;
+        numberRemaining[numberCount] = remaining;
+        numberLength[numberCount] = count;
+        numberCount++;
+    }
+
+    /** @return The number of squares in the group. */
+    int size() {
+        return cellCount;
+    }
+
+    /**
+     * @param k Index of a square within the group
+     * @return The board index of the square.
+     */
+    int cellAt(int k) {
+        return cells[k];
+    }
+
+    /**
+     * @param k Index of a square within the group
+     * @return The class of the square.
+     */
+    int classOf(int k) {
+        return cellClass[k];
+    }
+
+    /**
+     * @param cls A class
+     * @return The number of squares in the class.
+     */
+    int classSize(int cls) {
+        return classSize[cls];
+    }
+
+    /** @return Whether the group has been enumerated without giving up. */
+    boolean isComplete() {
+        return complete;
+    }
+
+    /** @return The highest number of mines the last enumeration allowed in the group. */
+    int getMaxMines() {
+        return maxMines;
+    }
+
+    /**
+     * @param mines A number of mines in the group, up to {@link #getMaxMines()}
+     * @return The number of placements with exactly that many mines.
+     */
+    double solutions(int mines) {
+        return solutions[mines];
+    }
+
+    /**
+     * @param mines A number of mines in the group, up to {@link #getMaxMines()}
+     * @param cls   A class
+     * @return The total of the mines in the class over all placements with that many mines in the group.
+     */
+    double classMines(int mines, int cls) {
+        return classMines[mines * classCount + cls];
+    }
+
+    /**
+     * Counts every placement of at most maxMines mines that satisfies all the numbers of the group.
+     *
+     * @param maxMines Most mines the group can hold
+     * @param maxSteps Number of search steps after which to give up
+     * @return False if the search gave up, in which case the results are not valid.
+     */
+    boolean enumerate(int maxMines, long maxSteps) {
+        buildClasses();
+        this.maxMines = Math.min(maxMines, cellCount);
+        this.maxSteps = maxSteps;
+        this.steps = 0;
+        assignedMines = grow(assignedMines, numberCount);
+        unassigned = grow(unassigned, numberCount);
+        assignment = grow(assignment, classCount);
+        for (int g = 0; g < numberCount; g++) {
+            assignedMines[g] = 0;
+            unassigned[g] = numberLength[g];
+        }
+        int results = this.maxMines + 1;
+        if (solutions.length < results) {
+            solutions = new double[Math.max(results, solutions.length * 2)];
+        }
+        if (classMines.length < results * classCount) {
+            classMines = new double[Math.max(results * classCount, classMines.length * 2)];
+        }
+        Arrays.fill(solutions, 0, results, 0);
+        Arrays.fill(classMines, 0, results * classCount, 0);
+        complete = search(0, 0, 1);
+        return complete;
+    }
+
+    /**
+     * Puts the squares next to the same numbers into the same class.
+     */
+    private void buildClasses() {
+        cellClass = grow(cellClass, cellCount);
+        classSize = grow(classSize, cellCount);
+        classFirstCell = grow(classFirstCell, cellCount);
+        classCount = 0;
+        for (int k = 0; k < cellCount; k++) {
+            int match = -1;
+            for (int x = 0; x < k && match < 0; x++) {
+                if (sameNumbers(k, x)) {
+                    match = cellClass[x];
+                }
+            }
+            if (match < 0) {
+                match = classCount++;
+                classSize[match] = 0;
+                classFirstCell[match] = k;
+            }
+            cellClass[k] = match;
+            classSize[match]++;
+        }
+    }
+
+    /** @return Whether two squares of the group are next to the same numbers. */
+    private boolean sameNumbers(int a, int b) {
+        int n = cellNumberLength[a];
+        if (n != cellNumberLength[b]) {
+            return false;
+        }
+        for (int x = 0; x < n; x++) {
+            if (cellNumbers[a * 8 + x] != cellNumbers[b * 8 + x]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tries every number of mines for class k, given the mines in the classes before it, and records
+     * every complete placement that satisfies all the numbers.
+     *
+     * @param k      Index of the class to decide
+     * @param mines  Mines placed so far
+     * @param weight Number of square placements the choices so far stand for
+     * @return False if the step limit was reached.
+     */
+    private boolean search(int k, int mines, double weight) {
+        if (++steps > maxSteps) {
+            return false;
+        }
+        if (k == classCount) {
+            solutions[mines] += weight;
+            int base = mines * classCount;
+            for (int x = 0; x < k; x++) {
+                classMines[base + x] += weight * assignment[x];
+            }
+            return true;
+        }
+        int size = classSize[k];
+        for (int value = 0; value <= size && mines + value <= maxMines; value++) {
+            boolean ok = assign(k, value);
+            boolean more = !ok || search(k + 1, mines + value, weight * CHOOSE[size][value]);
+            unassign(k, value);
+            if (!more) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Puts a number of mines in class k and updates the numbers around it.
+     *
+     * @return Whether every number around it can still be satisfied.
+     */
+    private boolean assign(int k, int value) {
+        assignment[k] = value;
+        int first = classFirstCell[k], size = classSize[k];
+        boolean ok = true;
+        for (int x = 0; x < cellNumberLength[first]; x++) {
+            int g = cellNumbers[first * 8 + x];
+            int placed = assignedMines[g] += value;
+            int left = unassigned[g] -= size;
+            if (placed > numberRemaining[g] || placed + left < numberRemaining[g]) {
+                ok = false;
+            }
+        }
+        return ok;
+    }
+
+    private void unassign(int k, int value) {
+        int first = classFirstCell[k], size = classSize[k];
+        for (int x = 0; x < cellNumberLength[first]; x++) {
+            int g = cellNumbers[first * 8 + x];
+            assignedMines[g] -= value;
+            unassigned[g] += size;
+        }
+    }
+
+    /**
+     * @return The sorted squares, then the sorted numbers each paired with its remaining mines;
+     *         the same for any two groups with the same constraints, whatever order they were built in.
+     */
+    private int[] key() {
+        if (key == null) {
+            int[] k = new int[cellCount + 1 + 2 * numberCount];
+            System.arraycopy(cells, 0, k, 0, cellCount);
+            Arrays.sort(k, 0, cellCount);
+            k[cellCount] = -1;
+            long[] pairs = new long[numberCount];
+            for (int g = 0; g < numberCount; g++) {
+                pairs[g] = (long) numbers[g] << 32 | numberRemaining[g];
+            }
+            Arrays.sort(pairs);
+            for (int g = 0; g < numberCount; g++) {
+                k[cellCount + 1 + 2 * g] = (int) (pairs[g] >>> 32);
+                k[cellCount + 2 + 2 * g] = (int) pairs[g];
+            }
+            key = k;
+        }
+        return key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof FrontierGroup && Arrays.equals(key(), ((FrontierGroup) o).key());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(key());
+    }
+
+    private void hashPut(int square, int local) {
+        int mask = hashKeys.length - 1;
+        int slot = (square * 0x9E3779B9) >>> 1 & mask;
+        while (hashKeys[slot] >= 0) {
+            slot = (slot + 1) & mask;
+        }
+        hashKeys[slot] = square;
+        hashValues[slot] = local;
+    }
+
+    private int hashGet(int square) {
+        int mask = hashKeys.length - 1;
+        int slot = (square * 0x9E3779B9) >>> 1 & mask;
+        while (hashKeys[slot] != square) {
+            slot = (slot + 1) & mask;
+        }
+        return hashValues[slot];
+    }
+
+    private static int[] grow(int[] array, int length) {
+        return array.length >= length ? array : Arrays.copyOf(array, Math.max(length, array.length * 2));
+    }
+}
@@ -0,0 +1,432 @@
+package minesweeper;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * GameComponent is a custom component that handles rendering and user interaction
+ * for a Minesweeper game. It turns mouse input into moves on the game's {@link GameEngine}
+ * and updates the messages from the engine's state.
+ * Nothing is redrawn on a timer: each move repaints only the squares it changed and the status text.
+ * Moves don't run on the event thread but are posted to an {@link EngineThread}, so a huge flood fill leaves
+ * the window free to scroll and paint; its snapshots bring the status and the repaints back to the event thread.
+ * The component is sized to the whole board so it can sit in a JScrollPane. The squares are sized to fit the
+ * window, and follow it as it is resized, until Ctrl + mouse wheel zooms; pressing F fits the board again.
+ * Zooming out goes past a pixel a square, down to a pixel for a block of squares, drawn as density pixels
+ * (see {@link Grid}), so a 4000x4000 board can be seen whole.
+ * Pressing H shows or hides the chance of a mine on every covered square ({@link MineProbabilities}).
+ * Pressing N before the first click switches to a board that can be solved without guessing ({@link NoGuessGenerator}).
+ * Chording - the middle button, both buttons together, or a left click on an uncovered number - reveals the
+ * neighbors of a number whose mines are all flagged, as one move with one repaint.
+ * Pressing D shows how long the last paint took and how many squares it drew, with {@link Metrics} on or off;
+ * pressing R switches between drawing the squares through Java2D and the raster renderer, to compare them.
+ * Ctrl+S saves the game with {@link BoardFile}; a saved game played from its file ({@link MappedBoard}) is
+ * already on disk, so saving only flushes it.
+ */
+@SuppressWarnings("serial")
+public class GameComponent extends JComponent implements MouseListener, MouseWheelListener {
+    private static final int STATUS_HEIGHT = 80; // area above the board holding the message and progress
+    private static final int MARGIN = 100;
+    private static final int MIN_SQUARE_SIZE = 1;
+    private static final int MAX_SQUARE_SIZE = 80;
+    private static final int MAX_SQUARES_PER_PIXEL = 64;
+    private static final Font STATUS_FONT = new Font("Arial", Font.BOLD, 18);
+
+    private Grid gameGrid;
+    private Board board;
+    private GameEngine engine; // null when playing a saved game from its file
+    private Path saveFile;
+    private String message;
+    private String userProgress;
+    private Color textColor;
+    private final EngineThread moves;
+    private EngineThread.Snapshot status;
+    private volatile MineProbabilities odds; // null while the heatmap is hidden; updated on the engine thread
+    private boolean debug; // whether the frame time overlay is shown
+    private long frameNanos; // time of the last paint, measured while the overlay or the metrics are on
+    private int frameSquares;
+    private final Metrics.Histogram frames = new Metrics.Histogram();
+    private boolean chording; // both buttons went down together; cleared once they are both up again
+    private boolean fitted = true; // the squares follow the window's size until the player zooms
+    private ComponentListener resized;
+
+    /**
+     * Constructs the Minesweeper game component with default board size and settings.
+     */
+    public GameComponent() {
+        this(new Grid(10, 12, 10, MARGIN, MARGIN), Path.of("minesweeper.mines")); // 10x12 board, 10 mines, 100px margin
+    }
+
+    /**
+     * Constructs the component for a board, such as a saved game.
+     *
+     * @param board    The board to play
+     * @param saveFile Where Ctrl+S saves the game
+     */
+    public GameComponent(Board board, Path saveFile) {
+        this(new Grid(board, MARGIN, MARGIN), saveFile);
+    }
+
+    private GameComponent(Grid grid, Path saveFile) {
+        gameGrid = grid;
+        board = gameGrid.getBoard();
+        engine = gameGrid.getEngine();
+        this.saveFile = saveFile;
+        message = "Click any tile to start!";
+        textColor = Color.BLACK;
+        moves = new EngineThread(gameGrid);
+        moves.setListener(this::applied, SwingUtilities::invokeLater);
+        moves.setObserver((op, row, col, result) -> {
+            MineProbabilities heatmap = odds;
+            if (heatmap != null && op != ReplayWriter.FLAG && result > 0) {
+                heatmap.update(board.getLastRevealed(), result);
+            }
+        });
+        status = moves.getLatest();
+        updateStatus();
+
+        setFocusable(true);
+        requestFocusInWindow();
+
+        addMouseListener(this);
+        addMouseWheelListener(this);
+
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke('h'), "toggleHeatmap");
+        getActionMap().put("toggleHeatmap", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (engine == null) return;
+                moves.execute(() -> {
+                    odds = odds == null ? new MineProbabilities(engine) : null;
+                    repaint();
+                });
+            }
+        });
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke('d'), "debug");
+        getActionMap().put("debug", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                debug = !debug;
+                frames.reset();
+                repaint(0, 0, getWidth(), STATUS_HEIGHT);
+            }
+        });
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke('r'), "rendering");
+        getActionMap().put("rendering", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                gameGrid.setRendering(gameGrid.getRendering() == Grid.Rendering.RASTER
+                        ? Grid.Rendering.JAVA2D : Grid.Rendering.RASTER);
+                frames.reset();
+                repaint();
+            }
+        });
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke('f'), "fit");
+        getActionMap().put("fit", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                fitted = true;
+                fitToWindow();
+            }
+        });
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke('n'), "noGuess");
+        getActionMap().put("noGuess", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (engine == null) return;
+                moves.execute(() -> {
+                    if (engine.isStarted()) return;
+                    if ((long) engine.getHeight() * engine.getWidth() > GameEngine.MAX_NO_GUESS_SQUARES) {
+                        // Every board tried is a whole solver game, so the search would hold up the game for ages
+                        showMessage(String.format("No-guess boards only go up to %,d squares", GameEngine.MAX_NO_GUESS_SQUARES));
+                        return;
+                    }
+                    if (gameGrid.isRecording()) {
+                        // The replay log's header already says how the board is dealt
+                        showMessage("No-guess boards can't be picked while recording");
+                        return;
+                    }
+                    engine.setNoGuess(true);
+                    showMessage("No guessing needed - click any tile!");
+                });
+            }
+        });
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_S, InputEvent.CTRL_DOWN_MASK), "save");
+        getActionMap().put("save", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                moves.execute(() -> save());
+            }
+        });
+    }
+
+    /**
+     * Stops the engine thread, for when the component is thrown away, such as when another board is picked.
+     * The moves already posted are still applied, but this doesn't wait for them, so it never holds up the
+     * event thread; moves made afterwards are ignored.
+     */
+    public void close() {
+        moves.shutdown();
+    }
+
+    /**
+     * Starts following the size of the scroll pane the component is shown in.
+     */
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+        if (viewport != null && resized == null) {
+            resized = new ComponentAdapter() {
+                @Override
+                public void componentResized(ComponentEvent e) {
+                    if (fitted) {
+                        fitToWindow();
+                    }
+                }
+            };
+            viewport.addComponentListener(resized);
+        }
+    }
+
+    /**
+     * Sizes the squares so the whole board fits in the scroll pane's view, margins included.
+     */
+    private void fitToWindow() {
+        JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+        if (viewport == null) return;
+        Dimension extent = viewport.getExtentSize();
+        if (extent.width <= 2 * MARGIN || extent.height <= 2 * MARGIN) return; // not laid out yet, or too small to matter
+        gameGrid.fitTo(extent.width - 2 * MARGIN, extent.height - 2 * MARGIN, MAX_SQUARE_SIZE);
+        if (gameGrid.getSquaresPerPixel() > MAX_SQUARES_PER_PIXEL) {
+            gameGrid.setSquaresPerPixel(MAX_SQUARES_PER_PIXEL);
+        }
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Records every move from now on, see {@link Grid#setRecorder(ReplayWriter)}.
+     *
+     * @param recorder The log to add moves to
+     */
+    public void setRecorder(ReplayWriter recorder) {
+        gameGrid.setRecorder(recorder);
+    }
+
+    /**
+     * Saves the game to the save file and says so in the status message. Runs on the engine thread.
+     */
+    private void save() {
+        try {
+            if (board instanceof MappedBoard) {
+                ((MappedBoard) board).force();
+            } else {
+                BoardFile.save(engine, saveFile);
+            }
+            showMessage("Saved to " + saveFile.getFileName());
+        } catch (IOException e) {
+            showMessage("Could not save: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Shows a status message, from any thread.
+     */
+    private void showMessage(String text) {
+        SwingUtilities.invokeLater(() -> {
+            message = text;
+            repaint(0, 0, getWidth(), STATUS_HEIGHT);
+        });
+    }
+
+    /**
+     * Takes in the moves the engine thread has applied since the last call: updates the status and repaints
+     * the squares they changed. Runs on the event thread; snapshots published before it gets to run are merged into one.
+     */
+    private void applied(EngineThread.Snapshot snapshot) {
+        status = snapshot;
+        int[] bounds = snapshot.getDirtyBounds();
+        if (bounds == null) {
+            return; // only work such as saving ran, and it sets its own message
+        }
+        updateStatus();
+        if (odds != null && snapshot.getUncovered() > 0) {
+            // Any covered square's chance can change, so the whole visible board is repainted
+            repaint();
+        } else {
+            Rectangle dirty = gameGrid.regionOf(bounds);
+            repaint(dirty.x, dirty.y, dirty.width, dirty.height);
+        }
+        repaint(0, 0, getWidth(), STATUS_HEIGHT);
+    }
+
+    /**
+     * @return The size of the whole board with its margins, so a scroll pane can scroll across it.
+     */
+    @Override
+    public Dimension getPreferredSize() {
+        return gameGrid.getPixelSize();
+    }
+
+    /**
+     * Updates the message and flag count from the last snapshot of the game.
+     */
+    private void updateStatus() {
+        if (status.isMineUncovered()) {
+            message = "You lost!";
+        } else if (status.hasWon()) {
+            message = "You win!";
+        } else if (status.isStarted()) {
+            // The snapshot makes the engine's state up to it visible here
+            message = engine != null && engine.isNoGuess() && !engine.isNoGuessFound()
+                    ? "No no-guess board turned up - this one may need a guess" : "Find the mines!";
+        }
+        userProgress = status.getNumFlaggedSquares() + "/" + board.getNumMines();
+    }
+
+    /**
+     * Paints the game grid and status messages to the screen.
+     *
+     * @param g The graphics context used for painting.
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        boolean timed = debug || Metrics.ENABLED;
+        long t0 = timed ? System.nanoTime() : 0;
+        int squares = gameGrid.draw((Graphics2D) g);
+        if (odds != null && !status.isGameOver()) {
+            gameGrid.drawHeatmap((Graphics2D) g, odds);
+        }
+
+        g.setColor(textColor);
+        g.setFont(STATUS_FONT);
+        g.drawString(message, 20, 40);
+        g.drawString(userProgress, 20, 70);
+        if (odds != null) {
+            g.drawString(String.format("Mine odds in %.1f ms", odds.getRefreshNanos() / 1e6), 120, 70);
+        }
+
+        if (timed) {
+            long nanos = System.nanoTime() - t0;
+            if (Metrics.ENABLED) {
+                Metrics.paint(squares, nanos);
+            }
+            if (squares > 0) { // a repaint of the status text alone says nothing about drawing the board
+                frameNanos = nanos;
+                frameSquares = squares;
+                frames.record(nanos);
+            }
+        }
+        if (debug) {
+            // The time of this paint up to here; drawing the overlay itself is left out
+            g.drawString(String.format("Frame %.2f ms, p99 %.2f ms, %,d squares, %s", frameNanos / 1e6,
+                    frames.getP99() / 1e6, frameSquares, gameGrid.getRendering()), 320, 40);
+        }
+    }
+
+    /**
+     * Notes when the left and right buttons are both down, so that releasing them chords instead of
+     * revealing or flagging.
+     *
+     * @param e The mouse event.
+     */
+    @Override
+    public void mousePressed(MouseEvent e) {
+        int both = InputEvent.BUTTON1_DOWN_MASK | InputEvent.BUTTON3_DOWN_MASK;
+        if ((e.getModifiersEx() & both) == both) {
+            chording = true;
+        }
+    }
+
+    /**
+     * Handles mouse release events for uncovering, flagging or chording squares. A chord is made when the
+     * first of two pressed buttons comes up; the release of the other one is then ignored.
+     *
+     * @param e The mouse event.
+     */
+    @Override
+    public void mouseReleased(MouseEvent e) {
+        boolean chord = e.getButton() == MouseEvent.BUTTON2;
+        if (chording) {
+            int down = e.getModifiersEx() & (InputEvent.BUTTON1_DOWN_MASK | InputEvent.BUTTON3_DOWN_MASK);
+            if (down == 0) {
+                chording = false;
+                return;
+            }
+            chord = true;
+        }
+        if (status.isGameOver()) return;
+
+        int row = gameGrid.rowAt(e.getY());
+        int col = gameGrid.colAt(e.getX());
+        if (!gameGrid.contains(row, col)) return;
+
+        // The move is applied on the engine thread, which repaints through applied() once it is done
+        if (chord || e.getButton() == MouseEvent.BUTTON1) {
+            moves.post(chord || board.isUncovered(row, col) ? ReplayWriter.CHORD : ReplayWriter.REVEAL, row, col);
+        } else {
+            moves.post(ReplayWriter.FLAG, row, col);
+        }
+    }
+
+    /**
+     * Zooms in or out around the mouse pointer when Ctrl is held; otherwise passes the wheel
+     * event on so the enclosing scroll pane still scrolls.
+     *
+     * @param e The mouse wheel event.
+     */
+    @Override
+    public void mouseWheelMoved(MouseWheelEvent e) {
+        if (!e.isControlDown()) {
+            Container parent = getParent();
+            if (parent != null) {
+                parent.dispatchEvent(SwingUtilities.convertMouseEvent(this, e, parent));
+            }
+            return;
+        }
+
+        // Past a pixel a square, each step halves or doubles the block of squares a pixel stands for
+        boolean in = e.getWheelRotation() < 0;
+        int oldSize = gameGrid.getSquareSize(), oldShrink = gameGrid.getSquaresPerPixel();
+        if (oldShrink > 1 || (!in && oldSize == MIN_SQUARE_SIZE)) {
+            int shrink = in ? oldShrink / 2 : Math.min(MAX_SQUARES_PER_PIXEL, oldShrink * 2);
+            if (shrink == oldShrink) return;
+            gameGrid.setSquaresPerPixel(shrink);
+        } else {
+            int step = Math.max(1, oldSize / 8);
+            int newSize = in ? oldSize + step : oldSize - step;
+            newSize = Math.max(MIN_SQUARE_SIZE, Math.min(MAX_SQUARE_SIZE, newSize));
+            if (newSize == oldSize) return;
+            gameGrid.setSquareSize(newSize);
+        }
+        fitted = false;
+        revalidate();
+        // The zoom as a fraction: pixels a square (or a block) is drawn at over squares it stands for
+        long scale = (long) gameGrid.getSquareSize() * oldShrink, oldScale = (long) oldSize * gameGrid.getSquaresPerPixel();
+
+        // Keep the square under the pointer in the same place on screen
+        JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+        if (viewport != null) {
+            Point view = viewport.getViewPosition();
+            int x = MARGIN + (int) ((e.getX() - MARGIN) * scale / oldScale);
+            int y = MARGIN + (int) ((e.getY() - MARGIN) * scale / oldScale);
+            Dimension size = getPreferredSize();
+            Dimension extent = viewport.getExtentSize();
+            viewport.setViewSize(size);
+            viewport.setViewPosition(new Point(
+                    Math.max(0, Math.min(size.width - extent.width, view.x + x - e.getX())),
+                    Math.max(0, Math.min(size.height - extent.height, view.y + y - e.getY()))));
+        }
+        repaint();
+    }
+
+    // Unused MouseListener methods 
+    public void mouseClicked(MouseEvent e) {}
+    public void mouseEntered(MouseEvent e) {}
+    public void mouseExited(MouseEvent e) {}
+}
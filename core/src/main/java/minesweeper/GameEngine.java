@@ -0,0 +1,845 @@
+package minesweeper;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.OptionalLong;
+import java.util.Random;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntPredicate;
+
+/**
+ * The Minesweeper game itself, with no user interface: the board, mine placement, and the moves
+ * a player can make, addressed by row and column. {@link Grid} draws an engine and turns mouse clicks
+ * into its moves, while bots and simulations can drive it directly without any AWT classes.
+ * The state of every cell is packed into a single byte (neighbor count, mine, flagged and uncovered bits),
+ * so a board costs one byte per cell.
+ */
+public class GameEngine implements Board {
+    // Layout of a packed cell: the low four bits hold the neighbor count (0-8), the rest are flags.
+    static final int COUNT_MASK = 0x0F;
+    static final int MINE = 0x10;
+    static final int FLAGGED = 0x20;
+    static final int UNCOVERED = 0x40;
+
+    /** Largest board the player can ask for a no-guess board on; each board tried is a whole solver game. */
+    static final int MAX_NO_GUESS_SQUARES = 1 << 20;
+    private static final long NO_GUESS_BUDGET = 1L << 23; // squares the no-guess search may play, a few seconds
+
+    private byte[] cells;
+    private int width, height, numMines;
+    private long seed;
+    private boolean safeNeighborhood;
+    private boolean noGuess, noGuessFound;
+    private boolean started;
+    private int numFlaggedSquares;
+    private int numUncoveredSafe, numFlaggedMines;
+    private boolean mineUncovered;
+    private int[] revealQueue;
+    private int dirtyTop, dirtyLeft, dirtyBottom, dirtyRight;
+    private CellListener cellListener; // null unless something watches the squares change
+
+    /**
+     * Constructs a game with a random seed.
+     *
+     * @param height   number of rows
+     * @param width    number of columns
+     * @param numMines number of mines to place
+     */
+    public GameEngine(int height, int width, int numMines) {
+        this(height, width, numMines, new Random().nextLong());
+    }
+
+    /**
+     * Constructs a game. The same seed always produces the same mine layout.
+     *
+     * @param height   number of rows
+     * @param width    number of columns
+     * @param numMines number of mines to place
+     * @param seed     seed for placing the mines
+     */
+    public GameEngine(int height, int width, int numMines, long seed) {
+        if (numMines < 0 || numMines > (long) height * width) {
+            throw new IllegalArgumentException("Cannot place " + numMines + " mines on a " + height + "x" + width + " grid");
+        }
+        this.height = height;
+        this.width = width;
+        this.numMines = numMines;
+        this.seed = seed;
+        this.cells = new byte[Math.multiplyExact(height, width)];
+        this.revealQueue = new int[64];
+        this.dirtyTop = this.dirtyLeft = Integer.MAX_VALUE;
+        this.dirtyBottom = this.dirtyRight = -1;
+        createGrid();
+    }
+
+    /**
+     * Reveals a square as a player's move. The first reveal of a game places the mines so that
+     * this square is safe, keeping any flags already placed. Flagged or already uncovered squares are
+     * left alone, and so is every square once the game is over.
+     *
+     * @param r Row index
+     * @param c Column index
+     * @return The number of squares uncovered, or -1 if a mine was uncovered.
+     */
+    public int reveal(int r, int c) {
+        if ((cells[r * width + c] & (FLAGGED | UNCOVERED)) != 0) {
+            return 0;
+        }
+        if (!started) {
+            started = true;
+            long t0 = Metrics.ENABLED ? System.nanoTime() : 0;
+            long attempts = 0;
+            if (noGuess) {
+                NoGuessGenerator generator = new NoGuessGenerator(height, width, numMines);
+                generator.setMaxAttempts((int) Math.min(generator.getMaxAttempts(),
+                        Math.max(1, NO_GUESS_BUDGET / cells.length)));
+                OptionalLong found = generator.findSeed(r, c, seed);
+                noGuessFound = found.isPresent();
+                seed = found.orElse(seed);
+                attempts = generator.getAttempts();
+            }
+            createGrid(r, c);
+            if (Metrics.ENABLED) {
+                Metrics.deal(attempts, System.nanoTime() - t0);
+            }
+        } else if (isGameOver()) {
+            return 0;
+        }
+        return uncoverSquare(r, c);
+    }
+
+    /**
+     * Flags or unflags a covered square as a player's move. Ignored once the game is over. Flags don't start
+     * the game: the mines are still placed by the first reveal.
+     *
+     * @param r Row index
+     * @param c Column index
+     * @return True if the flag changed; false if the square is uncovered or the game is over.
+     */
+    public boolean toggleFlag(int r, int c) {
+        if (started && isGameOver() || (cells[r * width + c] & UNCOVERED) != 0) {
+            return false;
+        }
+        flag(r, c);
+        return true;
+    }
+
+    /** @return Whether the first square has been revealed, which places the mines. */
+    public boolean isStarted() {
+        return started;
+    }
+
+    /** @return Whether the game has been won or lost. */
+    public boolean isGameOver() {
+        return mineUncovered || hasWon();
+    }
+
+    /** @return The number of flagged squares on the grid. */
+    public int getNumFlaggedSquares() {
+        return numFlaggedSquares;
+    }
+
+    /** @return The number of safe squares that are still covered. */
+    public int getNumSafeRemaining() {
+        return cells.length - numMines - numUncoveredSafe;
+    }
+
+    /** @return The total number of mines on the grid. */
+    public int getNumMines() {
+        return numMines;
+    }
+
+    /** @return Whether a mine has been uncovered (game over condition). */
+    public boolean isMineUncovered() {
+        return mineUncovered;
+    }
+
+    /** @return The seed the mines are placed from. */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Sets whether the first click should also keep the eight squares around it free of mines,
+     * so the first click always opens an area. Ignored when there are too many mines to allow it.
+     *
+     * @param safeNeighborhood True to keep the 3x3 block around the first click free of mines.
+     */
+    public void setSafeNeighborhood(boolean safeNeighborhood) {
+        this.safeNeighborhood = safeNeighborhood;
+    }
+
+    /** @return Whether the first click keeps the 3x3 block around it free of mines. */
+    public boolean isSafeNeighborhood() {
+        return safeNeighborhood;
+    }
+
+    /**
+     * Sets whether the first reveal should pick a board that can be solved from there without guessing,
+     * using {@link NoGuessGenerator}. The seed then changes to that board's seed. Turning it on also turns
+     * on {@link #setSafeNeighborhood(boolean)}. Each board tried is played through by the solver, so the search
+     * tries fewer boards the bigger the board is, a few seconds' work at most; if no such board turns up in that
+     * many, which happens on dense or large boards, the board from the current seed is used and
+     * {@link #isNoGuessFound()} says so.
+     *
+     * @param noGuess True to only deal boards that need no guessing.
+     */
+    public void setNoGuess(boolean noGuess) {
+        this.noGuess = noGuess;
+        if (noGuess) {
+            safeNeighborhood = true;
+        }
+    }
+
+    /** @return Whether the first reveal picks a board that can be solved without guessing. */
+    public boolean isNoGuess() {
+        return noGuess;
+    }
+
+    /** @return Whether the first reveal found a board that can be solved without guessing, when it looked for one. */
+    public boolean isNoGuessFound() {
+        return noGuessFound;
+    }
+
+    /** @return The number of rows on the grid. */
+    public int getHeight() {
+        return height;
+    }
+
+    /** @return The number of columns on the grid. */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @param r Row index
+     * @param c Column index
+     * @return Whether the square at the given position is a mine.
+     */
+    public boolean isMine(int r, int c) {
+        return (cells[r * width + c] & MINE) != 0;
+    }
+
+    /**
+     * @param r Row index
+     * @param c Column index
+     * @return Whether the square at the given position is flagged.
+     */
+    public boolean isFlagged(int r, int c) {
+        return (cells[r * width + c] & FLAGGED) != 0;
+    }
+
+    /**
+     * @param r Row index
+     * @param c Column index
+     * @return Whether the square at the given position is uncovered.
+     */
+    public boolean isUncovered(int r, int c) {
+        return (cells[r * width + c] & UNCOVERED) != 0;
+    }
+
+    /**
+     * @param r Row index
+     * @param c Column index
+     * @return The number of adjacent mines, or -1 if the square is a mine.
+     */
+    public int getNeighbors(int r, int c) {
+        int cell = cells[r * width + c];
+        return (cell & MINE) != 0 ? -1 : cell & COUNT_MASK;
+    }
+
+    /**
+     * @param i Square index, row * width + col
+     * @return The packed state of the square, for code that reads many squares quickly.
+     */
+    public byte cellAt(int i) {
+        return cells[i];
+    }
+
+    /**
+     * Generates a new grid with mines and number squares.
+     */
+    public void createGrid() {
+        placeMines(new int[0]);
+    }
+
+    /**
+     * Generates a new grid with mines and number squares, keeping the given square free of mines
+     * (and the squares around it, if {@link #setSafeNeighborhood(boolean)} is on). Used on the first click.
+     *
+     * @param safeRow Row index of the square that must not be a mine
+     * @param safeCol Column index of the square that must not be a mine
+     */
+    public void createGrid(int safeRow, int safeCol) {
+        placeMines(safeSquares(height, width, numMines, safeRow, safeCol, safeNeighborhood));
+    }
+
+    /**
+     * Works out which squares the first click keeps free of mines.
+     *
+     * @return Indexes (row * width + col) of the squares, in increasing order; the 3x3 block around the click
+     *         if safeNeighborhood is set and there is room for it, otherwise just the clicked square.
+     */
+    static int[] safeSquares(int height, int width, int numMines, int safeRow, int safeCol, boolean safeNeighborhood) {
+        int size = height * width;
+        int[] safe;
+        if (safeNeighborhood) {
+            int rowStart = Math.max(0, safeRow - 1), rowEnd = Math.min(height - 1, safeRow + 1);
+            int colStart = Math.max(0, safeCol - 1), colEnd = Math.min(width - 1, safeCol + 1);
+            safe = new int[(rowEnd - rowStart + 1) * (colEnd - colStart + 1)];
+            int k = 0;
+            for (int r = rowStart; r <= rowEnd; r++) {
+                for (int c = colStart; c <= colEnd; c++) {
+                    safe[k++] = r * width + c;
+                }
+            }
+        } else {
+            safe = new int[] { safeRow * width + safeCol };
+        }
+        if (safe.length > size - numMines) {
+            // Too many mines to keep the whole block clear; fall back to the clicked square alone
+            safe = numMines < size ? new int[] { safeRow * width + safeCol } : new int[0];
+        }
+        return safe;
+    }
+
+    /**
+     * Places the mines with {@link #sampleMines}, then fills in the neighbor counts with
+     * {@link NeighborCountTask}, which splits large boards into row bands that run in parallel on the
+     * current fork/join pool (the common pool unless called from inside another one).
+     *
+     * Every square is covered again, but flags stay where they are, so flags placed before the first reveal
+     * survive the deal.
+     *
+     * @param safe Indexes (row * width + col) of squares that must not be mines, in increasing order.
+     */
+    private void placeMines(int[] safe) {
+        byte[] cells = this.cells;
+        if (numFlaggedSquares == 0) {
+            Arrays.fill(cells, (byte) 0);
+        } else {
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] &= FLAGGED;
+            }
+        }
+        numUncoveredSafe = 0;
+        markDirty(0, 0, height - 1, width - 1);
+
+        sampleMines(seed, cells.length, numMines, safe, i -> {
+            if ((cells[i] & MINE) != 0) {
+                return false;
+            }
+            cells[i] |= MINE;
+            return true;
+        });
+
+        countNeighbors();
+        numFlaggedMines = 0;
+        if (cellListener != null) {
+            cellListener.cleared();
+        }
+        if (numFlaggedSquares > 0) {
+            for (int i = 0; i < cells.length; i++) {
+                if ((cells[i] & FLAGGED) != 0) {
+                    numFlaggedMines += (cells[i] & MINE) >> 4;
+                    if (cellListener != null) {
+                        cellListener.flagged(i, true);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Picks the mine squares in one pass using Floyd's sampling algorithm, which picks numMines distinct
+     * squares out of the allowed ones with a single random number each, whatever the mine density.
+     * {@link MappedBoard} uses it too, so a seed and first click give the same board in memory and on disk.
+     *
+     * @param seed     Seed for the random numbers
+     * @param size     Number of squares on the board
+     * @param numMines Number of mines to pick
+     * @param safe     Indexes of squares that must not be mines, in increasing order
+     * @param place    Puts a mine on a square, returning false if there already is one
+     */
+    static void sampleMines(long seed, int size, int numMines, int[] safe, IntPredicate place) {
+        Random rand = new Random(seed);
+
+        // Squares are drawn from 0..allowed-1. A safe square inside that range stands in for one of
+        // the unsafe squares at the top of the board's range, so every candidate maps to an allowed square.
+        int allowed = size - safe.length;
+        int[] swapFrom = new int[safe.length], swapTo = new int[safe.length];
+        int swaps = 0, top = size - 1, next = safe.length - 1;
+        for (int k = safe.length - 1; k >= 0 && safe[k] >= allowed; k--) {
+            next = k - 1;
+        }
+        for (int k = 0; k <= next; k++) {
+            while (Arrays.binarySearch(safe, top) >= 0) top--;
+            swapFrom[swaps] = safe[k];
+            swapTo[swaps++] = top--;
+        }
+
+        for (int j = allowed - numMines; j < allowed; j++) {
+            if (!place.test(candidate(rand.nextInt(j + 1), swapFrom, swapTo, swaps))) {
+                place.test(candidate(j, swapFrom, swapTo, swaps));
+            }
+        }
+    }
+
+    /**
+     * Recomputes every square's neighbor count from the mine layout.
+     */
+    void countNeighbors() {
+        countNeighbors(cells, width);
+    }
+
+    /**
+     * Fills in the neighbor counts of a board of squares in the packed layout from their MINE bits with
+     * {@link NeighborCountTask}, keeping the FLAGGED bits and clearing the rest. {@link SharedBoard} deals
+     * into its own squares with it.
+     *
+     * @param cells The squares, row after row
+     * @param width Number of columns
+     */
+    static void countNeighbors(byte[] cells, int width) {
+        new NeighborCountTask(cells, width, 0, cells.length / Math.max(1, width)).invoke();
+    }
+
+    /**
+     * Maps a candidate number to the square it stands for, swapping out the safe squares.
+     */
+    private static int candidate(int t, int[] swapFrom, int[] swapTo, int swaps) {
+        for (int k = 0; k < swaps; k++) {
+            if (swapFrom[k] == t) return swapTo[k];
+        }
+        return t;
+    }
+
+    /**
+     * Fills in the neighbor counts for a band of rows from the MINE bits, keeping the FLAGGED bits and
+     * clearing the rest, splitting itself in two while the band is large. Each square's count is the sum of three horizontal 3-square sums
+     * (the rows above, at and below it) minus the square itself, with the row sums computed once
+     * per row and reused by the rows around it. Reading from rows outside the band is safe because
+     * only the count bits are written, and the MINE bits never change while counting.
+     */
+    @SuppressWarnings("serial")
+    private static final class NeighborCountTask extends RecursiveAction {
+        private static final int MIN_BAND_SQUARES = 1 << 16;
+
+        private final byte[] cells;
+        private final int width, height, firstRow, endRow;
+
+        NeighborCountTask(byte[] cells, int width, int firstRow, int endRow) {
+            this.cells = cells;
+            this.width = width;
+            this.height = cells.length / Math.max(1, width);
+            this.firstRow = firstRow;
+            this.endRow = endRow;
+        }
+
+        @Override
+        protected void compute() {
+            int rows = endRow - firstRow;
+            if (rows < 2 || (long) rows * width <= MIN_BAND_SQUARES) {
+                countBand();
+                return;
+            }
+            int middle = firstRow + rows / 2;
+            invokeAll(new NeighborCountTask(cells, width, firstRow, middle),
+                      new NeighborCountTask(cells, width, middle, endRow));
+        }
+
+        private void countBand() {
+            byte[] above = new byte[width], current = new byte[width], below = new byte[width];
+            rowSums(firstRow - 1, above);
+            rowSums(firstRow, current);
+            for (int row = firstRow; row < endRow; row++) {
+                rowSums(row + 1, below);
+                for (int col = 0, i = row * width; col < width; col++, i++) {
+                    int mine = cells[i] & MINE;
+                    cells[i] = (byte) (cells[i] & (MINE | FLAGGED) | (above[col] + current[col] + below[col] - (mine >> 4)));
+                }
+                byte[] spare = above;
+                above = current;
+                current = below;
+                below = spare;
+            }
+        }
+
+        /**
+         * Stores, for each column, how many of that column and the two beside it hold mines in the given row.
+         * Rows outside the board count as having no mines.
+         */
+        private void rowSums(int row, byte[] sums) {
+            if (row < 0 || row >= height) {
+                Arrays.fill(sums, (byte) 0);
+                return;
+            }
+            int base = row * width;
+            int left = 0, here = (cells[base] >> 4) & 1;
+            for (int col = 0; col < width; col++) {
+                int right = col + 1 < width ? (cells[base + col + 1] >> 4) & 1 : 0;
+                sums[col] = (byte) (left + here + right);
+                left = here;
+                here = right;
+            }
+        }
+    }
+
+    /**
+     * Flags or unflags a square at the given position.
+     *
+     * @param r Row index
+     * @param c Column index
+     */
+    public void flag(int r, int c) {
+        int i = r * width + c;
+        if ((cells[i] & UNCOVERED) == 0) {
+            cells[i] ^= FLAGGED;
+            markDirty(r, c, r, c);
+            int delta = (cells[i] & FLAGGED) != 0 ? 1 : -1;
+            numFlaggedSquares += delta;
+            if ((cells[i] & MINE) != 0) {
+                numFlaggedMines += delta;
+            }
+            if (cellListener != null) {
+                cellListener.flagged(i, delta > 0);
+            }
+        }
+    }
+
+    /**
+     * Uncovers a single square without spreading to its neighbors. Flagged squares stay covered.
+     *
+     * @param r Row index
+     * @param c Column index
+     */
+    void uncoverCell(int r, int c) {
+        int i = r * width + c;
+        if ((cells[i] & (FLAGGED | UNCOVERED)) == 0) {
+            cells[i] |= UNCOVERED;
+            markDirty(r, c, r, c);
+            if ((cells[i] & MINE) == 0) {
+                numUncoveredSafe++;
+                if (cellListener != null) {
+                    cellListener.uncovered(new int[] { i }, 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Uncovers a square. If it's a mine, the game ends. If it's empty (0), uncovers its neighbors,
+     * spreading out breadth-first through connected empty squares. The flood fill uses a work queue
+     * instead of recursion, so it cannot overflow the stack on large boards.
+     * The squares it uncovers are left in {@link #getLastRevealed()}, so callers can repaint only those.
+     * Squares that are flagged or already uncovered are left alone.
+     *
+     * @param r Row index
+     * @param c Column index
+     * @return The number of squares uncovered by this call, or -1 if it was a mine.
+     */
+    public int uncoverSquare(int r, int c) {
+        int start = r * width + c;
+        if ((cells[start] & (FLAGGED | UNCOVERED)) != 0) {
+            return 0;
+        }
+
+        if ((cells[start] & MINE) != 0) {
+            explode();
+            return -1;
+        }
+
+        cells[start] |= UNCOVERED;
+        revealQueue[0] = start;
+        markDirty(r, c, r, c);
+        return fill(1);
+    }
+
+    @Override
+    public int chord(int r, int c) {
+        int center = cells[r * width + c];
+        if (isGameOver() || (center & (UNCOVERED | MINE)) != UNCOVERED || (center & COUNT_MASK) == 0) {
+            return 0;
+        }
+
+        int rowStart = Math.max(0, r - 1), rowEnd = Math.min(height - 1, r + 1);
+        int colStart = Math.max(0, c - 1), colEnd = Math.min(width - 1, c + 1);
+        int flags = 0;
+        boolean hitsMine = false;
+        for (int nr = rowStart; nr <= rowEnd; nr++) {
+            for (int n = nr * width + colStart, last = nr * width + colEnd; n <= last; n++) {
+                int cell = cells[n];
+                if ((cell & FLAGGED) != 0) {
+                    flags++;
+                } else if ((cell & (UNCOVERED | MINE)) == MINE) {
+                    hitsMine = true;
+                }
+            }
+        }
+        if (flags != (center & COUNT_MASK)) {
+            return 0;
+        }
+        if (hitsMine) {
+            explode();
+            return -1;
+        }
+
+        // Every covered neighbor starts the same fill, so the whole chord is one batch
+        int tail = 0;
+        for (int nr = rowStart; nr <= rowEnd; nr++) {
+            for (int n = nr * width + colStart, last = nr * width + colEnd; n <= last; n++) {
+                if ((cells[n] & (UNCOVERED | FLAGGED)) == 0) {
+                    cells[n] |= UNCOVERED;
+                    revealQueue[tail++] = n;
+                }
+            }
+        }
+        markDirty(rowStart, colStart, rowEnd, colEnd);
+        return fill(tail);
+    }
+
+    /**
+     * Uncovers the whole board after a mine has been hit. Flagged squares stay covered.
+     */
+    private void explode() {
+        mineUncovered = true;
+        markDirty(0, 0, height - 1, width - 1);
+        for (int i = 0; i < cells.length; i++) {
+            int cell = cells[i];
+            if ((cell & (FLAGGED | UNCOVERED)) == 0) {
+                cells[i] = (byte) (cell | UNCOVERED);
+                if ((cell & MINE) == 0) {
+                    numUncoveredSafe++;
+                }
+            }
+        }
+        if (cellListener != null) {
+            cellListener.exploded();
+        }
+    }
+
+    /**
+     * Runs the flood fill from the squares already in the reveal queue, which must be uncovered safe squares.
+     * The queue is never wrapped, so once the fill finishes it holds every square it uncovered.
+     * A square is marked uncovered as it is queued, which keeps it from being queued twice.
+     *
+     * @param tail The number of starting squares in the queue.
+     * @return The number of squares in the queue when the fill is done.
+     */
+    private int fill(int tail) {
+        long t0 = Metrics.ENABLED ? System.nanoTime() : 0;
+        int[] queue = revealQueue;
+        for (int head = 0; head < tail; head++) {
+            int i = queue[head];
+            if ((cells[i] & COUNT_MASK) != 0) {
+                continue;
+            }
+
+            int row = i / width;
+            int col = i - row * width;
+            int rowStart = Math.max(0, row - 1), rowEnd = Math.min(height - 1, row + 1);
+            int colStart = Math.max(0, col - 1), colEnd = Math.min(width - 1, col + 1);
+            // Everything this square can uncover lies in its 3x3 neighborhood
+            markDirty(rowStart, colStart, rowEnd, colEnd);
+            if (tail + 8 > queue.length) {
+                queue = Arrays.copyOf(queue, (int) Math.min((long) queue.length * 2, cells.length));
+            }
+            for (int nr = rowStart; nr <= rowEnd; nr++) {
+                for (int n = nr * width + colStart, last = nr * width + colEnd; n <= last; n++) {
+                    // A square next to an empty square can't be a mine, so only the state bits matter
+                    int cell = cells[n];
+                    if ((cell & (UNCOVERED | FLAGGED)) == 0) {
+                        cells[n] = (byte) (cell | UNCOVERED);
+                        queue[tail++] = n;
+                    }
+                }
+            }
+        }
+
+        revealQueue = queue;
+        numUncoveredSafe += tail;
+        if (Metrics.ENABLED) {
+            Metrics.fill(tail, System.nanoTime() - t0);
+        }
+        if (cellListener != null) {
+            cellListener.uncovered(queue, tail);
+        }
+        return tail;
+    }
+
+    /**
+     * Returns the squares uncovered by the last call to {@link #uncoverSquare(int, int)}, as indexes
+     * of the form {@code row * width + col}. Only the first n entries are valid, where n is the value
+     * that call returned; the array is reused by the next call.
+     *
+     * @return The buffer holding the last uncovered squares.
+     */
+    public int[] getLastRevealed() {
+        return revealQueue;
+    }
+
+    /**
+     * Replaces the state of every square with one held as bit-planes, where bit k of word w stands for
+     * square w * 64 + k, then recomputes the neighbor counts and the running counters.
+     * Used by {@link BoardFile} to load saved games.
+     *
+     * @param mines         Bits set for mines
+     * @param uncovered     Bits set for uncovered squares
+     * @param flagged       Bits set for flagged squares
+     * @param started       Whether a move had been made
+     * @param mineUncovered Whether a mine had been uncovered
+     */
+    void restore(LongBuffer mines, LongBuffer uncovered, LongBuffer flagged, boolean started, boolean mineUncovered) {
+        for (int w = 0, i = 0; i < cells.length; w++) {
+            long m = mines.get(w);
+            for (int end = Math.min(cells.length, i + 64); i < end; i++, m >>>= 1) {
+                cells[i] = (byte) ((m & 1) << 4); // MINE is bit 4
+            }
+        }
+        countNeighbors(); // overwrites everything but the MINE and FLAGGED bits, so the other bits go in afterwards
+
+        int uncoveredSafe = 0, flaggedSquares = 0, flaggedMines = 0;
+        for (int w = 0, i = 0; i < cells.length; w++) {
+            long m = mines.get(w), u = uncovered.get(w), f = flagged.get(w);
+            uncoveredSafe += Long.bitCount(u & ~m);
+            flaggedSquares += Long.bitCount(f);
+            flaggedMines += Long.bitCount(f & m);
+            // FLAGGED and UNCOVERED are bits 5 and 6
+            for (int end = Math.min(cells.length, i + 64); i < end; i++, u >>>= 1, f >>>= 1) {
+                cells[i] |= (byte) ((f & 1) << 5 | (u & 1) << 6);
+            }
+        }
+        this.numUncoveredSafe = uncoveredSafe;
+        this.numFlaggedSquares = flaggedSquares;
+        this.numFlaggedMines = flaggedMines;
+        this.started = started;
+        this.mineUncovered = mineUncovered;
+        markDirty(0, 0, height - 1, width - 1);
+    }
+
+    /**
+     * Covers every square again and removes all flags, keeping the current mine layout,
+     * so the same board can be played again.
+     */
+    public void restart() {
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] &= COUNT_MASK | MINE;
+        }
+        numFlaggedSquares = 0;
+        numUncoveredSafe = 0;
+        numFlaggedMines = 0;
+        mineUncovered = false;
+        started = false;
+        noGuessFound = false;
+        markDirty(0, 0, height - 1, width - 1);
+        if (cellListener != null) {
+            cellListener.cleared();
+        }
+    }
+
+    /**
+     * Starts a new game on this board with a different seed, reusing its memory. The mines are placed
+     * when the first square is revealed with {@link #reveal(int, int)}; until then the board has none.
+     *
+     * @param seed Seed for placing the mines
+     */
+    public void newGame(long seed) {
+        this.seed = seed;
+        Arrays.fill(cells, (byte) 0);
+        numFlaggedSquares = 0;
+        numUncoveredSafe = 0;
+        numFlaggedMines = 0;
+        mineUncovered = false;
+        started = false;
+        noGuessFound = false;
+        markDirty(0, 0, height - 1, width - 1);
+        if (cellListener != null) {
+            cellListener.cleared();
+        }
+    }
+
+    /**
+     * Sets what hears about every change to the squares, such as a {@link ChangeFeed}. The listener is called
+     * on the thread making the move. Boards loaded with {@link BoardFile#load} report only the changes made
+     * after the listener is set.
+     *
+     * @param listener The listener, or null to stop reporting
+     */
+    public void setCellListener(CellListener listener) {
+        this.cellListener = listener;
+    }
+
+    /**
+     * Grows the dirty region so it covers the given block of squares.
+     *
+     * @param top    First row of the block
+     * @param left   First column of the block
+     * @param bottom Last row of the block
+     * @param right  Last column of the block
+     */
+    private void markDirty(int top, int left, int bottom, int right) {
+        if (top < dirtyTop) dirtyTop = top;
+        if (left < dirtyLeft) dirtyLeft = left;
+        if (bottom > dirtyBottom) dirtyBottom = bottom;
+        if (right > dirtyRight) dirtyRight = right;
+    }
+
+    /**
+     * Hands over the block of squares that has changed since the last call, and clears it.
+     * User interfaces use it to redraw only the changed part of the board.
+     *
+     * @param bounds Receives the first row, first column, last row and last column of the block.
+     * @return True if anything changed; false (leaving bounds untouched) otherwise.
+     */
+    public boolean takeDirtyBounds(int[] bounds) {
+        if (dirtyBottom < 0) {
+            return false;
+        }
+        bounds[0] = dirtyTop;
+        bounds[1] = dirtyLeft;
+        bounds[2] = dirtyBottom;
+        bounds[3] = dirtyRight;
+        dirtyTop = dirtyLeft = Integer.MAX_VALUE;
+        dirtyBottom = dirtyRight = -1;
+        return true;
+    }
+
+    /**
+     * Checks if the player has won the game (all non-mine squares uncovered and all mines flagged).
+     * This compares running counters kept by the moves, so it takes constant time whatever the board size.
+     * With assertions enabled ({@code java -ea}) the counters are also checked against a full scan.
+     *
+     * @return True if the player has won; false otherwise.
+     */
+    public boolean hasWon() {
+        long t0 = Metrics.ENABLED ? System.nanoTime() : 0;
+        assert countersMatchBoard();
+        boolean won = numUncoveredSafe == cells.length - numMines && numFlaggedMines == numMines;
+        if (Metrics.ENABLED) {
+            Metrics.HAS_WON_NANOS.record(System.nanoTime() - t0);
+        }
+        return won;
+    }
+
+    /**
+     * Recounts uncovered safe squares and flagged squares by scanning the whole board,
+     * and fails if the running counters have drifted from them.
+     *
+     * @return True if the counters are correct; otherwise an AssertionError is thrown.
+     */
+    boolean countersMatchBoard() {
+        int uncoveredSafe = 0, flagged = 0, flaggedMines = 0;
+        for (int i = 0; i < cells.length; i++) {
+            int cell = cells[i];
+            if ((cell & (MINE | UNCOVERED)) == UNCOVERED) uncoveredSafe++;
+            if ((cell & FLAGGED) != 0) flagged++;
+            if ((cell & (MINE | FLAGGED)) == (MINE | FLAGGED)) flaggedMines++;
+        }
+        if (uncoveredSafe != numUncoveredSafe || flagged != numFlaggedSquares || flaggedMines != numFlaggedMines) {
+            throw new AssertionError("Engine counters drifted: uncovered safe " + numUncoveredSafe + " vs " + uncoveredSafe
+                    + ", flagged " + numFlaggedSquares + " vs " + flagged
+                    + ", flagged mines " + numFlaggedMines + " vs " + flaggedMines);
+        }
+        return true;
+    }
+}
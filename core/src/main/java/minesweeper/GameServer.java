@@ -0,0 +1,273 @@
+package minesweeper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hosts games for clients over TCP, one game per connection, with no user interface. A connection is served by
+ * a thread of its own that blocks on the socket, which keeps each game single-threaded: a virtual thread on
+ * Java 21 and later, where thousands of them cost next to nothing, and a small-stack platform thread before that.
+ * Each game is a {@link GameEngine}, one byte per square, so ten thousand expert boards take about 5 MB.
+ *
+ * The protocol is binary, with big-endian numbers as written by {@link DataOutputStream}. Each request gets
+ * exactly one response, so a client may send a request and wait for its answer. Requests:
+ * <pre>
+ * 'N' height:int width:int mines:int seed:long    start a game; the mines are placed on the first reveal
+ * 'R' row:int col:int                             reveal a square
+ * 'F' row:int col:int                             flag or unflag a square
+ * 'C' row:int col:int                             chord on an uncovered number
+ * 'B'                                             send every square, to catch up after losing track
+ * </pre>
+ * A response is the state of the game as a byte (see {@link #PLAYING} and the others), the number of squares
+ * that changed as an int, then each of those squares as its index ({@code row * width + col}, an int) and what
+ * the player now sees there (a byte, see {@link #view}). Only the squares the move changed are sent: the
+ * squares a reveal uncovered, or the one flag. A move that hits a mine sends every square, since the whole
+ * board is uncovered. A bad request gets {@link #ERROR} and a message written with writeUTF.
+ *
+ * Run with: java -cp core/target/minesweeper-core-1.0-SNAPSHOT.jar minesweeper.GameServer [--port N]
+ */
+public class GameServer implements Closeable {
+    /** Requests. */
+    public static final byte NEW = 'N', REVEAL = 'R', FLAG = 'F', CHORD = 'C', BOARD = 'B';
+
+    /** States sent at the start of a response. */
+    public static final byte NO_GAME = 0, PLAYING = 1, WON = 2, LOST = 3, ERROR = 127;
+
+    /** Views of a square, besides 0 to 8 for an uncovered number. */
+    public static final byte MINE_VIEW = 9, FLAG_VIEW = 10, COVERED_VIEW = 11;
+
+    private static final int MAX_SQUARES = 1 << 22; // largest board a client may ask for
+    private static final long STACK_SIZE = 256 * 1024; // for platform connection threads, which only need a shallow stack
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final LongAdder moves = new LongAdder();
+    private Thread acceptor;
+
+    /**
+     * Opens the server socket. Connections are accepted once {@link #start()} is called.
+     *
+     * @param port The port to listen on, or 0 for any free port
+     * @throws IOException If the port can't be opened.
+     */
+    public GameServer(int port) throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port), 4096);
+        ExecutorService virtual = virtualThreadPool();
+        AtomicInteger threads = new AtomicInteger();
+        connections = virtual != null ? virtual : Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(null, task, "minesweeper-connection-" + threads.incrementAndGet(), STACK_SIZE);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** @return The port the server listens on. */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /** @return The number of clients connected now. */
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    /** @return The number of reveals, flags and chords played since the server started. */
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    /**
+     * Starts accepting connections on a thread of its own.
+     */
+    public void start() {
+        acceptor = new Thread(() -> {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    socket.setTcpNoDelay(true);
+                    openConnections.incrementAndGet();
+                    connections.execute(() -> serve(socket));
+                } catch (IOException e) {
+                    if (!serverSocket.isClosed()) {
+                        System.err.println("Could not accept a connection: " + e.getMessage());
+                    }
+                }
+            }
+        }, "minesweeper-acceptor");
+        acceptor.start();
+    }
+
+    /**
+     * Stops accepting connections. Connections already open are served until their clients hang up.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdown();
+    }
+
+    /**
+     * Plays one client's games until it disconnects.
+     */
+    private void serve(Socket socket) {
+        try (socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            GameEngine game = null;
+            while (true) {
+                int request;
+                try {
+                    request = in.readByte();
+                } catch (EOFException e) {
+                    return; // the client hung up
+                }
+                if (request == NEW) {
+                    int height = in.readInt(), width = in.readInt(), mines = in.readInt();
+                    long seed = in.readLong();
+                    if (height <= 0 || width <= 0 || (long) height * width > MAX_SQUARES || mines < 0
+                            || mines >= (long) height * width) {
+                        error(out, "Bad board: " + height + "x" + width + " with " + mines + " mines");
+                        continue;
+                    }
+                    if (game != null && game.getHeight() == height && game.getWidth() == width
+                            && game.getNumMines() == mines) {
+                        game.newGame(seed);
+                    } else {
+                        game = new GameEngine(height, width, mines, seed);
+                    }
+                    respond(out, game, 0, 0);
+                } else if (request == BOARD) {
+                    if (game == null) {
+                        error(out, "No game");
+                        continue;
+                    }
+                    respond(out, game, -1, 0);
+                } else if (request == REVEAL || request == FLAG || request == CHORD) {
+                    int row = in.readInt(), col = in.readInt();
+                    if (game == null || row < 0 || row >= game.getHeight() || col < 0 || col >= game.getWidth()) {
+                        error(out, game == null ? "No game" : "Off the board: " + row + ", " + col);
+                        continue;
+                    }
+                    moves.increment();
+                    if (request == FLAG) {
+                        boolean changed = game.toggleFlag(row, col);
+                        respond(out, game, changed ? 1 : 0, row * game.getWidth() + col);
+                    } else {
+                        int uncovered = request == REVEAL ? game.reveal(row, col) : game.chord(row, col);
+                        respond(out, game, uncovered, -1);
+                    }
+                } else {
+                    error(out, "Unknown request " + request);
+                    return; // the rest of the stream can't be trusted
+                }
+            }
+        } catch (SocketException e) {
+            // the client went away mid-request
+        } catch (IOException e) {
+            System.err.println("Connection failed: " + e.getMessage());
+        } finally {
+            openConnections.decrementAndGet();
+        }
+    }
+
+    /**
+     * Writes a response with the squares a move changed and flushes it.
+     *
+     * @param count  The squares to send from the last reveal, 1 with a square given for a flag,
+     *               or -1 (the result of a move that hit a mine) to send them all
+     * @param square The flagged square, or -1 to take the squares from the last reveal
+     */
+    private static void respond(DataOutputStream out, GameEngine game, int count, int square) throws IOException {
+        out.writeByte(!game.isStarted() ? NO_GAME : game.isMineUncovered() ? LOST : game.hasWon() ? WON : PLAYING);
+        if (count < 0) {
+            int size = game.getHeight() * game.getWidth();
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeInt(i);
+                out.writeByte(view(game.cellAt(i)));
+            }
+        } else if (square >= 0) {
+            out.writeInt(count);
+            if (count > 0) {
+                out.writeInt(square);
+                out.writeByte(view(game.cellAt(square)));
+            }
+        } else {
+            int[] revealed = game.getLastRevealed();
+            out.writeInt(count);
+            for (int k = 0; k < count; k++) {
+                out.writeInt(revealed[k]);
+                out.writeByte(view(game.cellAt(revealed[k])));
+            }
+        }
+        out.flush();
+    }
+
+    private static void error(DataOutputStream out, String message) throws IOException {
+        out.writeByte(ERROR);
+        out.writeUTF(message);
+        out.flush();
+    }
+
+    /**
+     * Works out what a player sees of a square, which never gives away a covered mine.
+     *
+     * @param cell The packed cell, see {@link GameEngine#cellAt(int)}
+     * @return 0 to 8 for an uncovered number, {@link #MINE_VIEW}, {@link #FLAG_VIEW} or {@link #COVERED_VIEW}.
+     */
+    public static byte view(byte cell) {
+        if ((cell & GameEngine.FLAGGED) != 0) return FLAG_VIEW;
+        if ((cell & GameEngine.UNCOVERED) == 0) return COVERED_VIEW;
+        if ((cell & GameEngine.MINE) != 0) return MINE_VIEW;
+        return (byte) (cell & GameEngine.COUNT_MASK);
+    }
+
+    /**
+     * Looks up the virtual thread executor, which only exists from Java 21 on.
+     *
+     * @return An executor starting a virtual thread per task, or null on older Java versions.
+     */
+    private static ExecutorService virtualThreadPool() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = 7070;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port": port = Integer.parseInt(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        GameServer server = new GameServer(port);
+        server.start();
+        System.out.println("Serving games on port " + server.getPort());
+        long lastMoves = 0;
+        while (true) {
+            Thread.sleep(5000);
+            long total = server.getMoves();
+            System.out.printf("%,d connections, %,.0f moves/s%n", server.getOpenConnections(), (total - lastMoves) / 5.0);
+            lastMoves = total;
+        }
+    }
+}
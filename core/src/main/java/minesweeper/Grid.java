@@ -0,0 +1,688 @@
+package minesweeper;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Represents the Minesweeper grid, which composed of Square objects.
+ * Handles drawing of the grid and turning mouse positions into moves; the game itself is played by a
+ * {@link Board}, normally a {@link GameEngine}, which this class wraps. {@link Square} objects are only
+ * created as views when asked for.
+ *
+ * Squares can be drawn at any size down to a pixel, and zoomed out further so that one pixel stands for a block
+ * of squares. Below {@link #DENSITY_SIZE} pixels a square the tiles can't be made out, so the squares are
+ * drawn straight into the pixels of an image instead, each pixel the average color of the squares under it.
+ * Larger squares are drawn either through Java2D, one tile image per square, or by the {@link RasterRenderer},
+ * which copies the tiles' pixels into an image of its own; {@link #setRendering} switches between them at any
+ * time, and {@code -Dminesweeper.raster=true} starts with the raster renderer.
+ */
+public class Grid {
+    /** Squares drawn smaller than this many pixels are drawn as density pixels rather than tiles. */
+    public static final int DENSITY_SIZE = 4;
+
+    /** Ways of drawing squares of {@link #DENSITY_SIZE} pixels and up. */
+    public enum Rendering {
+        /** A Java2D image call per square, copying its tile from the atlas. */
+        JAVA2D,
+        /** Tile pixels copied straight into an image's int array, see {@link RasterRenderer}. */
+        RASTER
+    }
+
+
+    // Heatmap tints and labels for each whole percentage, made once rather than on every paint
+    private static final Color[] HEAT_COLORS = new Color[101];
+    private static final String[] PERCENT_LABELS = new String[101];
+
+    static {
+        HEAT_COLORS[0] = new Color(0, 170, 0, 110);
+        for (int p = 1; p <= 100; p++) {
+            HEAT_COLORS[p] = new Color(230, 0, 0, 40 + p * 170 / 100);
+        }
+        for (int p = 0; p <= 100; p++) {
+            PERCENT_LABELS[p] = Integer.toString(p);
+        }
+    }
+
+    private final Board board;
+    private int topMargin, leftMargin;
+    private int squareSize;
+    private int squaresPerPixel; // more than 1 only when squareSize is 1
+    private int[] dirtyBounds;
+    private TileCache tiles;
+    private ReplayWriter recorder; // null unless moves are being recorded
+    private Rendering rendering = Boolean.getBoolean("minesweeper.raster") ? Rendering.RASTER : Rendering.JAVA2D;
+    private final RasterRenderer raster = new RasterRenderer();
+    private BufferedImage densityImage; // reused for density drawing, grown as needed
+    private Font heatmapFont; // for the heatmap's percentages, made again when the square size changes
+    private int[] red = new int[0], green = new int[0], blue = new int[0], count = new int[0], firstCols = new int[1];
+
+    /**
+     * Constructs the game grid with given parameters and a random seed.
+     *
+     * @param height      number of rows
+     * @param width       number of columns
+     * @param numMines    number of mines to place
+     * @param topMargin   top pixel margin for rendering
+     * @param leftMargin  left pixel margin for rendering
+     */
+    public Grid(int height, int width, int numMines, int topMargin, int leftMargin) {
+        this(height, width, numMines, topMargin, leftMargin, new Random().nextLong());
+    }
+
+    /**
+     * Constructs the game grid with given parameters. The same seed always produces the same mine layout.
+     *
+     * @param height      number of rows
+     * @param width       number of columns
+     * @param numMines    number of mines to place
+     * @param topMargin   top pixel margin for rendering
+     * @param leftMargin  left pixel margin for rendering
+     * @param seed        seed for placing the mines
+     */
+    public Grid(int height, int width, int numMines, int topMargin, int leftMargin, long seed) {
+        this(new GameEngine(height, width, numMines, seed), topMargin, leftMargin);
+    }
+
+    /**
+     * Constructs a grid that draws and plays an existing board, such as a saved game opened with {@link BoardFile}.
+     *
+     * @param board       the board to play
+     * @param topMargin   top pixel margin for rendering
+     * @param leftMargin  left pixel margin for rendering
+     */
+    public Grid(Board board, int topMargin, int leftMargin) {
+        this.board = board;
+        this.topMargin = topMargin;
+        this.leftMargin = leftMargin;
+        this.squareSize = 30;
+        this.squaresPerPixel = 1;
+        this.dirtyBounds = new int[4];
+        this.tiles = new TileCache();
+    }
+
+    /** @return The board this grid draws. */
+    public Board getBoard() {
+        return board;
+    }
+
+    /** @return The game this grid draws, or null if the board is not kept in memory by a {@link GameEngine}. */
+    public GameEngine getEngine() {
+        return board instanceof GameEngine ? (GameEngine) board : null;
+    }
+
+    /**
+     * Records every move made through {@link #reveal}, {@link #toggleFlag} and {@link #userMove} from now on.
+     *
+     * @param recorder The log to add moves to, started before the game's first move, or null to stop recording
+     */
+    public void setRecorder(ReplayWriter recorder) {
+        this.recorder = recorder;
+    }
+
+    /** @return Whether moves are being recorded, in which case the game's options must not change. */
+    public boolean isRecording() {
+        return recorder != null;
+    }
+
+    /** @return The number of flagged squares on the grid. */
+    public int getNumFlaggedSquares() {
+        return board.getNumFlaggedSquares();
+    }
+
+    /** @return The total number of mines on the grid. */
+    public int getNumMines() {
+        return board.getNumMines();
+    }
+
+    /** @return Whether a mine has been uncovered (game over condition). */
+    public boolean isMineUncovered() {
+        return board.isMineUncovered();
+    }
+
+    /** @return The number of rows on the grid. */
+    public int getHeight() {
+        return board.getHeight();
+    }
+
+    /** @return The number of columns on the grid. */
+    public int getWidth() {
+        return board.getWidth();
+    }
+
+    /** @return The width and height of each square in pixels. */
+    public int getSquareSize() {
+        return squareSize;
+    }
+
+    /**
+     * Changes the size squares are drawn at, for zooming in and out.
+     *
+     * @param squareSize The new width and height of each square in pixels.
+     */
+    public void setSquareSize(int squareSize) {
+        this.squareSize = squareSize;
+        this.squaresPerPixel = 1;
+    }
+
+    /** @return How many squares across one pixel stands for: 1 unless zoomed out past a pixel a square. */
+    public int getSquaresPerPixel() {
+        return squaresPerPixel;
+    }
+
+    /**
+     * Zooms out past a pixel a square, so that each pixel stands for a block of squares.
+     *
+     * @param squaresPerPixel How many squares across one pixel stands for; 1 draws each square as one pixel.
+     */
+    public void setSquaresPerPixel(int squaresPerPixel) {
+        this.squareSize = 1;
+        this.squaresPerPixel = squaresPerPixel;
+    }
+
+    /** @return How squares of {@link #DENSITY_SIZE} pixels and up are drawn. */
+    public Rendering getRendering() {
+        return rendering;
+    }
+
+    /**
+     * Changes how squares of {@link #DENSITY_SIZE} pixels and up are drawn. Both ways draw the same picture.
+     *
+     * @param rendering The way to draw them
+     */
+    public void setRendering(Rendering rendering) {
+        this.rendering = rendering;
+    }
+
+    /**
+     * Turns the parallel fill of large redraws by the raster renderer on or off, for comparing the two.
+     *
+     * @param parallel Whether large redraws are split into bands of rows filled in parallel
+     */
+    void setRasterParallel(boolean parallel) {
+        raster.setParallel(parallel);
+    }
+
+    /**
+     * Picks the largest square size at which the whole board fits in an area, zooming out past a pixel
+     * a square if even that is too big.
+     *
+     * @param pixelsWide    The width of the area
+     * @param pixelsHigh    The height of the area
+     * @param maxSquareSize The largest square size to use, however much room there is
+     */
+    public void fitTo(int pixelsWide, int pixelsHigh, int maxSquareSize) {
+        int width = Math.max(1, pixelsWide), height = Math.max(1, pixelsHigh);
+        int size = Math.min(width / getWidth(), height / getHeight());
+        if (size >= 1) {
+            setSquareSize(Math.min(size, maxSquareSize));
+        } else {
+            setSquaresPerPixel(Math.max((getWidth() + width - 1) / width, (getHeight() + height - 1) / height));
+        }
+    }
+
+    /**
+     * @param squares A number of squares
+     * @return How many pixels that many squares take, rounded up.
+     */
+    private int pixels(long squares) {
+        return (int) ((squares * squareSize + squaresPerPixel - 1) / squaresPerPixel);
+    }
+
+    /**
+     * @param pixels A pixel offset from the edge of the board
+     * @return The square at that offset; may be outside the grid.
+     */
+    private int squareAt(long pixels) {
+        return (int) Math.floorDiv(pixels * squaresPerPixel, squareSize);
+    }
+
+    /**
+     * @param pixels A pixel offset from the edge of the board
+     * @return The last square drawn before that offset; may be outside the grid.
+     */
+    private int lastSquareBefore(long pixels) {
+        return (int) Math.floorDiv(pixels * squaresPerPixel - 1, squareSize);
+    }
+
+    /**
+     * Changes the colors squares are drawn with. The whole board needs repainting afterwards.
+     *
+     * @param covered    The color of a covered square.
+     * @param background The color of an uncovered square.
+     * @param border     The color of the border around each square.
+     * @param flag       The color of a flag.
+     */
+    public void setColors(Color covered, Color background, Color border, Color flag) {
+        tiles.setColors(covered, background, border, flag);
+    }
+
+    /**
+     * @return The pixel size of the board plus its margins on every side, for sizing the component that shows it.
+     */
+    public Dimension getPixelSize() {
+        return new Dimension(2 * leftMargin + pixels(getWidth()), 2 * topMargin + pixels(getHeight()));
+    }
+
+    /**
+     * @param mouseY A y-coordinate in pixels
+     * @return The row under that coordinate, the first of the block when a pixel stands for several;
+     *         may be outside the grid.
+     */
+    public int rowAt(int mouseY) {
+        return squareAt(mouseY - topMargin);
+    }
+
+    /**
+     * @param mouseX An x-coordinate in pixels
+     * @return The column under that coordinate, the first of the block when a pixel stands for several;
+     *         may be outside the grid.
+     */
+    public int colAt(int mouseX) {
+        return squareAt(mouseX - leftMargin);
+    }
+
+    /**
+     * @param r Row index
+     * @param c Column index
+     * @return Whether the position is on the grid.
+     */
+    public boolean contains(int r, int c) {
+        return r >= 0 && r < getHeight() && c >= 0 && c < getWidth();
+    }
+
+    /**
+     * @param r Row index
+     * @param c Column index
+     * @return Whether the square at the given position is a mine.
+     */
+    public boolean isMine(int r, int c) {
+        return board.isMine(r, c);
+    }
+
+    /**
+     * @param r Row index
+     * @param c Column index
+     * @return Whether the square at the given position is flagged.
+     */
+    public boolean isFlagged(int r, int c) {
+        return board.isFlagged(r, c);
+    }
+
+    /**
+     * @param r Row index
+     * @param c Column index
+     * @return Whether the square at the given position is uncovered.
+     */
+    public boolean isUncovered(int r, int c) {
+        return board.isUncovered(r, c);
+    }
+
+    /**
+     * @param r Row index
+     * @param c Column index
+     * @return The number of adjacent mines, or -1 if the square is a mine.
+     */
+    public int getNeighbors(int r, int c) {
+        return board.getNeighbors(r, c);
+    }
+
+    /**
+     * Returns a view of the square at the given position. The view reads and writes the grid's state,
+     * so it stays current after moves are made.
+     *
+     * @param r Row index
+     * @param c Column index
+     * @return A MineSquare or NumberSquare for that position.
+     */
+    public Square getSquare(int r, int c) {
+        if (isMine(r, c)) {
+            return new MineSquare(this, r, c);
+        }
+        NumberSquare ns = new NumberSquare(this, r, c);
+        ns.setNumberColor(getColorForNumber(getNeighbors(r, c)));
+        return ns;
+    }
+
+    /**
+     * Generates a new grid with mines and number squares.
+     *
+     * @throws UnsupportedOperationException If the board is a saved game played from its file.
+     */
+    public void createGrid() {
+        GameEngine engine = getEngine();
+        if (engine == null) {
+            throw new UnsupportedOperationException("A saved board keeps the mines it was saved with");
+        }
+        engine.createGrid();
+    }
+
+    /**
+     * Gets the color to use for a number square based on the mine count.
+     *
+     * @param n The number of adjacent mines.
+     * @return A color representing the number.
+     */
+    static Color getColorForNumber(int n) {
+        switch (n) {
+            case 1: return Color.BLUE;
+            case 2: return Color.GREEN;
+            case 3: return Color.RED;
+            case 4: return Color.MAGENTA;
+            case 5: return Color.ORANGE;
+            case 6: return Color.CYAN;
+            case 7: return Color.PINK;
+            case 8: return Color.GRAY;
+            default: return Color.BLACK;
+        }
+    }
+
+    /**
+     * Flags or unflags a square at the given position.
+     *
+     * @param r Row index
+     * @param c Column index
+     */
+    public void flag(int r, int c) {
+        board.flag(r, c);
+    }
+
+    /**
+     * Uncovers a square, spreading through connected empty squares. See {@link GameEngine#uncoverSquare(int, int)}.
+     *
+     * @param r Row index
+     * @param c Column index
+     * @return The number of squares uncovered by this call, or -1 if it was a mine.
+     */
+    public int uncoverSquare(int r, int c) {
+        return board.uncoverSquare(r, c);
+    }
+
+    /**
+     * Returns the screen area covering every square that has changed since the last call, and clears it.
+     * Callers pass this to {@code repaint} so only the changed part of the board is redrawn.
+     *
+     * @return The changed area in pixels, or null if nothing has changed.
+     */
+    public Rectangle takeDirtyRegion() {
+        if (!board.takeDirtyBounds(dirtyBounds)) {
+            return null;
+        }
+        return regionOf(dirtyBounds);
+    }
+
+    /**
+     * Works out where a block of squares is drawn, at the current square size.
+     *
+     * @param bounds The first row, first column, last row and last column of the block
+     * @return The block in pixels.
+     */
+    public Rectangle regionOf(int[] bounds) {
+        int top = bounds[0], left = bounds[1], bottom = bounds[2], right = bounds[3];
+        int x = left * squareSize / squaresPerPixel, y = top * squareSize / squaresPerPixel;
+        return new Rectangle(leftMargin + x, topMargin + y, pixels(right + 1L) - x, pixels(bottom + 1L) - y);
+    }
+
+    /**
+     * Reveals a square as a player's move, recording it if a recorder is set. See {@link Board#reveal(int, int)}.
+     *
+     * @param r Row index
+     * @param c Column index
+     * @return The number of squares uncovered, or -1 if a mine was uncovered.
+     */
+    public int reveal(int r, int c) {
+        record(ReplayWriter.REVEAL, r, c);
+        return board.reveal(r, c);
+    }
+
+    /**
+     * Flags or unflags a square as a player's move, recording it if a recorder is set.
+     * See {@link Board#toggleFlag(int, int)}.
+     *
+     * @param r Row index
+     * @param c Column index
+     * @return True if the flag changed.
+     */
+    public boolean toggleFlag(int r, int c) {
+        record(ReplayWriter.FLAG, r, c);
+        return board.toggleFlag(r, c);
+    }
+
+    /**
+     * Chords on an uncovered number as a player's move, recording it if a recorder is set.
+     * See {@link Board#chord(int, int)}.
+     *
+     * @param r Row index
+     * @param c Column index
+     * @return The number of squares uncovered, or -1 if a mine was uncovered.
+     */
+    public int chord(int r, int c) {
+        record(ReplayWriter.CHORD, r, c);
+        return board.chord(r, c);
+    }
+
+    /**
+     * Adds a move to the replay log, if there is one. Moves are flushed one at a time, so the log
+     * survives the game being closed at any point; a log that can't be written stops being recorded to.
+     */
+    private void record(int op, int r, int c) {
+        if (recorder == null) return;
+        try {
+            recorder.record(op, r, c);
+            recorder.flush();
+        } catch (IOException e) {
+            System.err.println("Stopped recording the game: " + e.getMessage());
+            recorder = null;
+        }
+    }
+
+    /**
+     * Handles a user's move (click or flag) based on mouse coordinates and action type.
+     * New code should map the position with {@link #rowAt}/{@link #colAt} and call the engine's moves directly.
+     *
+     * @param mouseX  Mouse x-coordinate
+     * @param mouseY  Mouse y-coordinate
+     * @param action  "uncover" or "flag"
+     * @param started Whether the game has already started
+     * @return True if the move is valid; false if the game has not started due to mine placement
+     */
+    public boolean userMove(int mouseX, int mouseY, String action, boolean started) {
+        int col = colAt(mouseX);
+        int row = rowAt(mouseY);
+
+        if (contains(row, col)) {
+            if (action.equals("uncover")) {
+                reveal(row, col);
+            } else if (action.equals("flag")) {
+                toggleFlag(row, col);
+            }
+
+            return true;
+        }
+
+        return started;
+    }
+
+    /**
+     * Checks if the player has won the game (all non-mine squares uncovered and all mines flagged).
+     *
+     * @return True if the player has won; false otherwise.
+     */
+    public boolean hasWon() {
+        return board.hasWon();
+    }
+
+    /**
+     * Draws the grid of squares on the screen. Only the squares that overlap the clip of the graphics
+     * context are drawn, so painting a small part of a large board costs about as much as the part itself.
+     * Each square is copied from a pre-rendered tile, so drawing allocates nothing per square; squares smaller
+     * than {@link #DENSITY_SIZE} are drawn as density pixels instead. See {@link #setRendering} for how the
+     * tiles are copied.
+     *
+     * @param g2 The graphics context to draw with.
+     * @return The number of squares drawn.
+     */
+    public int draw(Graphics2D g2) {
+        if (squareSize < DENSITY_SIZE) {
+            return drawDensity(g2);
+        }
+        Rectangle visible = visibleSquares(g2);
+        int width = getWidth();
+        int size = squareSize;
+        if (rendering == Rendering.RASTER) {
+            if (!visible.isEmpty()) {
+                raster.draw(g2, board, tiles, visible, size, leftMargin + visible.x * size, topMargin + visible.y * size);
+            }
+            return visible.width * visible.height;
+        }
+        Image atlas = tiles.getAtlas(g2, size);
+        for (int row = visible.y; row < visible.y + visible.height; row++) {
+            int y = topMargin + row * size;
+            for (int col = visible.x; col < visible.x + visible.width; col++) {
+                int x = leftMargin + col * size;
+                int tileX = TileCache.tileFor(board.cellAt(row * width + col)) * size;
+                g2.drawImage(atlas, x, y, x + size, y + size, tileX, 0, tileX + size, size, null);
+            }
+        }
+        return visible.width * visible.height;
+    }
+
+    /**
+     * Draws the visible squares as pixels into an image, then the image in one call. Each pixel is the average
+     * color of the tiles of the squares under it (see {@link TileCache#getPalette()}), so the picture shows where
+     * the board is open, still covered, flagged or blown up. The colors of a row of pixels are summed a row of
+     * squares at a time, reading the board in the order it is stored.
+     *
+     * @param g2 The graphics context to draw with.
+     * @return The number of squares drawn.
+     */
+    private int drawDensity(Graphics2D g2) {
+        Rectangle visible = visibleSquares(g2);
+        if (visible.isEmpty()) {
+            return 0;
+        }
+        int width = getWidth(), height = getHeight();
+        int x0 = visible.x * squareSize / squaresPerPixel, y0 = visible.y * squareSize / squaresPerPixel;
+        int w = pixels((long) visible.x + visible.width) - x0, h = pixels((long) visible.y + visible.height) - y0;
+        if (densityImage == null || densityImage.getWidth() < w || densityImage.getHeight() < h) {
+            densityImage = new BufferedImage(Math.max(w, densityImage == null ? 0 : densityImage.getWidth()),
+                    Math.max(h, densityImage == null ? 0 : densityImage.getHeight()), BufferedImage.TYPE_INT_RGB);
+        }
+        if (red.length < w) {
+            red = new int[w];
+            green = new int[w];
+            blue = new int[w];
+            count = new int[w];
+            firstCols = new int[w + 1];
+        }
+        // Pixel column px shows squares firstCols[px] up to the next pixel's first column, or just its first
+        // column when a square is wider than a pixel
+        for (int px = 0; px <= w; px++) {
+            firstCols[px] = squareAt(x0 + px);
+        }
+        int[] pixels = ((DataBufferInt) densityImage.getRaster().getDataBuffer()).getData();
+        int stride = densityImage.getWidth();
+        int[] palette = tiles.getPalette();
+
+        for (int py = 0; py < h; py++) {
+            int firstRow = squareAt(y0 + py);
+            int endRow = Math.min(height, Math.max(firstRow + 1, squareAt(y0 + py + 1L)));
+            Arrays.fill(red, 0, w, 0);
+            Arrays.fill(green, 0, w, 0);
+            Arrays.fill(blue, 0, w, 0);
+            Arrays.fill(count, 0, w, 0);
+            for (int row = firstRow; row < endRow; row++) {
+                int base = row * width;
+                for (int px = 0; px < w; px++) {
+                    int endCol = Math.min(width, Math.max(firstCols[px] + 1, firstCols[px + 1]));
+                    int r = 0, g = 0, b = 0;
+                    for (int col = firstCols[px]; col < endCol; col++) {
+                        int rgb = palette[TileCache.tileFor(board.cellAt(base + col))];
+                        r += rgb >> 16 & 0xFF;
+                        g += rgb >> 8 & 0xFF;
+                        b += rgb & 0xFF;
+                    }
+                    red[px] += r;
+                    green[px] += g;
+                    blue[px] += b;
+                    count[px] += endCol - firstCols[px];
+                }
+            }
+            int offset = py * stride;
+            for (int px = 0; px < w; px++) {
+                int n = Math.max(1, count[px]);
+                pixels[offset + px] = red[px] / n << 16 | green[px] / n << 8 | blue[px] / n;
+            }
+        }
+        int x = leftMargin + x0, y = topMargin + y0;
+        g2.drawImage(densityImage, x, y, x + w, y + h, 0, 0, w, h, null);
+        return visible.width * visible.height;
+    }
+
+    /**
+     * Draws the chance of a mine over every covered, unflagged square in the clip: green where it is
+     * certainly safe, and a red tint that deepens with the chance elsewhere. The percentage is written
+     * on top when the squares are big enough to read it.
+     *
+     * @param g2   The graphics context to draw with.
+     * @param odds The probabilities for this grid's game.
+     */
+    public void drawHeatmap(Graphics2D g2, MineProbabilities odds) {
+        if (squareSize < DENSITY_SIZE) {
+            return; // too small to see
+        }
+        Rectangle visible = visibleSquares(g2);
+        int width = getWidth();
+        int size = squareSize;
+        float[] chances = odds.snapshot(); // read once, so the whole paint shows the same recomputation
+        boolean labels = size >= 24;
+        FontMetrics metrics = null;
+        if (labels) {
+            if (heatmapFont == null || heatmapFont.getSize() != size / 3) {
+                heatmapFont = new Font("Arial", Font.PLAIN, size / 3);
+            }
+            g2.setFont(heatmapFont);
+            metrics = g2.getFontMetrics();
+        }
+        for (int row = visible.y; row < visible.y + visible.height; row++) {
+            int y = topMargin + row * size;
+            for (int col = visible.x; col < visible.x + visible.width; col++) {
+                float chance = chances[row * width + col];
+                if ((board.cellAt(row * width + col) & GameEngine.FLAGGED) != 0 || Float.isNaN(chance)) {
+                    continue;
+                }
+                int percent = Math.round(chance * 100);
+                int x = leftMargin + col * size;
+                g2.setColor(HEAT_COLORS[percent]);
+                g2.fillRect(x + 1, y + 1, size - 2, size - 2);
+                if (labels) {
+                    String text = PERCENT_LABELS[percent];
+                    g2.setColor(Color.BLACK);
+                    g2.drawString(text, x + (size - metrics.stringWidth(text)) / 2, y + size - size / 8);
+                }
+            }
+        }
+    }
+
+    /**
+     * Works out which squares overlap the clip of a graphics context.
+     *
+     * @param g2 The graphics context to be drawn with.
+     * @return The visible squares, as first column (x), first row (y), number of columns and rows.
+     */
+    private Rectangle visibleSquares(Graphics2D g2) {
+        int firstRow = 0, lastRow = getHeight() - 1;
+        int firstCol = 0, lastCol = getWidth() - 1;
+        Rectangle clip = g2.getClipBounds();
+        if (clip != null) {
+            firstRow = Math.max(firstRow, squareAt(clip.y - topMargin));
+            lastRow = Math.min(lastRow, lastSquareBefore(clip.y + clip.height - topMargin));
+            firstCol = Math.max(firstCol, squareAt(clip.x - leftMargin));
+            lastCol = Math.min(lastCol, lastSquareBefore(clip.x + clip.width - leftMargin));
+        }
+        return new Rectangle(firstCol, firstRow, Math.max(0, lastCol - firstCol + 1), Math.max(0, lastRow - firstRow + 1));
+    }
+}
@@ -0,0 +1,141 @@
+package minesweeper;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+
+/**
+ * Shows a {@link ChunkedBoard} and plays it with the mouse. The board has no edges, so instead of sitting in a
+ * scroll pane the component keeps its own view position: drag to move around, or use the mouse wheel (with Shift
+ * to go sideways). Clicks and chords work as in {@link GameComponent}. Only the squares on screen are drawn, and telling the
+ * board what is on screen keeps those chunks in memory.
+ */
+@SuppressWarnings("serial")
+public class InfiniteComponent extends JComponent implements MouseListener, MouseMotionListener, MouseWheelListener {
+    private static final int STATUS_HEIGHT = 80;
+    private static final int SQUARE_SIZE = 30;
+    private static final int DRAG_THRESHOLD = 4; // pixels the mouse must move before a press becomes a drag
+    private static final Font STATUS_FONT = new Font("Arial", Font.BOLD, 18);
+
+    private final ChunkedBoard board;
+    private final TileCache tiles = new TileCache();
+    private long viewX, viewY; // board pixel at the top left corner of the board area
+    private int pressX, pressY;
+    private long pressViewX, pressViewY;
+    private boolean dragging;
+    private boolean chording; // both buttons went down together; cleared once they are both up again
+
+    /**
+     * Constructs the component with the first square in the middle of the window.
+     *
+     * @param board The board to play
+     */
+    public InfiniteComponent(ChunkedBoard board) {
+        this.board = board;
+        viewX = viewY = -10L * SQUARE_SIZE;
+        addMouseListener(this);
+        addMouseMotionListener(this);
+        addMouseWheelListener(this);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2 = (Graphics2D) g;
+        int boardHeight = getHeight() - STATUS_HEIGHT;
+        int firstRow = (int) Math.floorDiv(viewY, SQUARE_SIZE), firstCol = (int) Math.floorDiv(viewX, SQUARE_SIZE);
+        int rows = boardHeight / SQUARE_SIZE + 2, cols = getWidth() / SQUARE_SIZE + 2;
+        board.setViewport(firstRow, firstCol, firstRow + rows - 1, firstCol + cols - 1);
+
+        Graphics2D area = (Graphics2D) g2.create(0, STATUS_HEIGHT, getWidth(), Math.max(0, boardHeight));
+        Image atlas = tiles.getAtlas(area, SQUARE_SIZE);
+        for (int dr = 0; dr < rows; dr++) {
+            int y = (int) ((long) (firstRow + dr) * SQUARE_SIZE - viewY);
+            for (int dc = 0; dc < cols; dc++) {
+                int x = (int) ((long) (firstCol + dc) * SQUARE_SIZE - viewX);
+                int tileX = TileCache.tileFor(board.cellAt(firstRow + dr, firstCol + dc)) * SQUARE_SIZE;
+                area.drawImage(atlas, x, y, x + SQUARE_SIZE, y + SQUARE_SIZE, tileX, 0, tileX + SQUARE_SIZE, SQUARE_SIZE, null);
+            }
+        }
+        area.dispose();
+
+        g2.setColor(Color.BLACK);
+        g2.setFont(STATUS_FONT);
+        String message = board.isMineUncovered() ? "You lost!" : board.isStarted() ? "Keep going!" : "Click any tile to start!";
+        g2.drawString(message, 20, 40);
+        g2.drawString(String.format("%,d cleared, %,d flags - drag to move around", board.getNumUncovered(),
+                board.getNumFlagged()), 20, 70);
+    }
+
+    @Override
+    public void mousePressed(MouseEvent e) {
+        pressX = e.getX();
+        pressY = e.getY();
+        pressViewX = viewX;
+        pressViewY = viewY;
+        dragging = false;
+        int both = InputEvent.BUTTON1_DOWN_MASK | InputEvent.BUTTON3_DOWN_MASK;
+        if ((e.getModifiersEx() & both) == both) {
+            chording = true;
+        }
+    }
+
+    @Override
+    public void mouseDragged(MouseEvent e) {
+        int dx = e.getX() - pressX, dy = e.getY() - pressY;
+        if (!dragging && Math.abs(dx) + Math.abs(dy) < DRAG_THRESHOLD) return;
+        dragging = true;
+        viewX = pressViewX - dx;
+        viewY = pressViewY - dy;
+        repaint();
+    }
+
+    /**
+     * Reveals, flags or chords the square under the mouse, unless the press turned into a drag. As in
+     * {@link GameComponent}, the middle button, both buttons together or a left click on an uncovered number
+     * chords; with both buttons the chord is made when the first comes up and the other release is ignored.
+     *
+     * @param e The mouse event.
+     */
+    @Override
+    public void mouseReleased(MouseEvent e) {
+        boolean chord = e.getButton() == MouseEvent.BUTTON2;
+        if (chording) {
+            int down = e.getModifiersEx() & (InputEvent.BUTTON1_DOWN_MASK | InputEvent.BUTTON3_DOWN_MASK);
+            if (down == 0) {
+                chording = false;
+                return;
+            }
+            chord = true;
+        }
+        if (dragging || e.getY() < STATUS_HEIGHT || board.isMineUncovered()) return;
+        int row = (int) Math.floorDiv(viewY + e.getY() - STATUS_HEIGHT, SQUARE_SIZE);
+        int col = (int) Math.floorDiv(viewX + e.getX(), SQUARE_SIZE);
+        if (chord || e.getButton() == MouseEvent.BUTTON1
+                && (board.cellAt(row, col) & GameEngine.UNCOVERED) != 0) {
+            board.chord(row, col);
+        } else if (e.getButton() == MouseEvent.BUTTON1) {
+            board.reveal(row, col);
+        } else {
+            board.toggleFlag(row, col);
+        }
+        repaint();
+    }
+
+    @Override
+    public void mouseWheelMoved(MouseWheelEvent e) {
+        int step = e.getWheelRotation() * 3 * SQUARE_SIZE;
+        if (e.isShiftDown()) {
+            viewX += step;
+        } else {
+            viewY += step;
+        }
+        repaint();
+    }
+
+    // Unused listener methods
+    public void mouseMoved(MouseEvent e) {}
+    public void mouseClicked(MouseEvent e) {}
+    public void mouseEntered(MouseEvent e) {}
+    public void mouseExited(MouseEvent e) {}
+}
@@ -0,0 +1,402 @@
+package minesweeper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * A game played straight from a file saved by {@link BoardFile}, with the file's bit-planes mapped into memory.
+ * Nothing is read when the board is opened: the operating system pages in the parts of the file that moves and
+ * drawing touch, so a billion-square board opens at once and only the area on screen costs memory. Moves write
+ * to the mapped planes and header, so the file always holds the current game; {@link #force()} makes sure it has
+ * reached the disk.
+ *
+ * The rules are the same as {@link GameEngine}'s, and a game that hasn't started gets the same mines from the
+ * same seed and first click. Neighbor counts are not stored, so each is counted from the mine plane when needed.
+ * Opened with {@link BoardFile#map}. Not safe for use by more than one thread.
+ */
+public final class MappedBoard implements Board, Closeable {
+    private final FileChannel channel;
+    private final MappedByteBuffer header, planes;
+    private final LongBuffer mines, uncovered, flagged;
+    private final int height, width, numMines, size;
+    private final long seed;
+    private final boolean safeNeighborhood;
+    private boolean started, mineUncovered;
+    private int numFlaggedSquares, numUncoveredSafe, numFlaggedMines;
+    private int[] revealQueue = new int[64];
+    private int dirtyTop, dirtyLeft, dirtyBottom, dirtyRight;
+
+    /**
+     * Maps a file whose header has already been checked by {@link BoardFile#readHeader}.
+     *
+     * @param channel The file, open for reading and writing; closed by {@link #close()}
+     */
+    MappedBoard(FileChannel channel) throws IOException {
+        this.channel = channel;
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, BoardFile.HEADER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        height = header.getInt(BoardFile.HEIGHT);
+        width = header.getInt(BoardFile.WIDTH);
+        numMines = header.getInt(BoardFile.MINES);
+        seed = header.getLong(BoardFile.SEED);
+        int flags = header.getInt(BoardFile.FLAGS);
+        started = (flags & BoardFile.STARTED) != 0;
+        mineUncovered = (flags & BoardFile.MINE_UNCOVERED) != 0;
+        safeNeighborhood = (flags & BoardFile.SAFE_NEIGHBORHOOD) != 0;
+        numFlaggedSquares = header.getInt(BoardFile.FLAGGED_SQUARES);
+        numUncoveredSafe = header.getInt(BoardFile.UNCOVERED_SAFE);
+        numFlaggedMines = header.getInt(BoardFile.FLAGGED_MINES);
+        size = height * width;
+
+        int plane = (int) BoardFile.planeBytes(size);
+        planes = channel.map(FileChannel.MapMode.READ_WRITE, BoardFile.HEADER_SIZE, 3L * plane);
+        mines = planes.slice(0, plane).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        uncovered = planes.slice(plane, plane).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        flagged = planes.slice(2 * plane, plane).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        dirtyTop = dirtyLeft = Integer.MAX_VALUE;
+        dirtyBottom = dirtyRight = -1;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getNumMines() {
+        return numMines;
+    }
+
+    @Override
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public int getNumFlaggedSquares() {
+        return numFlaggedSquares;
+    }
+
+    @Override
+    public int getNumSafeRemaining() {
+        return size - numMines - numUncoveredSafe;
+    }
+
+    @Override
+    public boolean isStarted() {
+        return started;
+    }
+
+    @Override
+    public boolean isMineUncovered() {
+        return mineUncovered;
+    }
+
+    @Override
+    public boolean hasWon() {
+        return numUncoveredSafe == size - numMines && numFlaggedMines == numMines;
+    }
+
+    @Override
+    public boolean isGameOver() {
+        return mineUncovered || hasWon();
+    }
+
+    @Override
+    public boolean isMine(int r, int c) {
+        return test(mines, r * width + c);
+    }
+
+    @Override
+    public boolean isFlagged(int r, int c) {
+        return test(flagged, r * width + c);
+    }
+
+    @Override
+    public boolean isUncovered(int r, int c) {
+        return test(uncovered, r * width + c);
+    }
+
+    @Override
+    public int getNeighbors(int r, int c) {
+        return isMine(r, c) ? -1 : countMines(r, c);
+    }
+
+    @Override
+    public byte cellAt(int i) {
+        int r = i / width;
+        return (byte) ((test(mines, i) ? GameEngine.MINE : 0) | (test(flagged, i) ? GameEngine.FLAGGED : 0)
+                | (test(uncovered, i) ? GameEngine.UNCOVERED : 0) | countMines(r, i - r * width));
+    }
+
+    @Override
+    public int reveal(int r, int c) {
+        int i = r * width + c;
+        if (test(flagged, i) || test(uncovered, i)) {
+            return 0;
+        }
+        if (!started) {
+            started = true;
+            placeMines(GameEngine.safeSquares(height, width, numMines, r, c, safeNeighborhood));
+        } else if (isGameOver()) {
+            return 0;
+        }
+        return uncoverSquare(r, c);
+    }
+
+    @Override
+    public boolean toggleFlag(int r, int c) {
+        if (started && isGameOver() || test(uncovered, r * width + c)) {
+            return false;
+        }
+        flag(r, c);
+        return true;
+    }
+
+    @Override
+    public int chord(int r, int c) {
+        int center = r * width + c;
+        if (isGameOver() || !test(uncovered, center) || test(mines, center)) {
+            return 0;
+        }
+        int count = countMines(r, c);
+        if (count == 0) {
+            return 0;
+        }
+
+        int rowStart = Math.max(0, r - 1), rowEnd = Math.min(height - 1, r + 1);
+        int colStart = Math.max(0, c - 1), colEnd = Math.min(width - 1, c + 1);
+        int flags = 0;
+        boolean hitsMine = false;
+        for (int nr = rowStart; nr <= rowEnd; nr++) {
+            for (int n = nr * width + colStart, last = nr * width + colEnd; n <= last; n++) {
+                if (test(flagged, n)) {
+                    flags++;
+                } else if (test(mines, n) && !test(uncovered, n)) {
+                    hitsMine = true;
+                }
+            }
+        }
+        if (flags != count) {
+            return 0;
+        }
+        if (hitsMine) {
+            explode();
+            return -1;
+        }
+
+        int tail = 0;
+        for (int nr = rowStart; nr <= rowEnd; nr++) {
+            for (int n = nr * width + colStart, last = nr * width + colEnd; n <= last; n++) {
+                if (!test(uncovered, n) && !test(flagged, n)) {
+                    flip(uncovered, n);
+                    revealQueue[tail++] = n;
+                }
+            }
+        }
+        markDirty(rowStart, colStart, rowEnd, colEnd);
+        return fill(tail);
+    }
+
+    @Override
+    public void flag(int r, int c) {
+        int i = r * width + c;
+        if (test(uncovered, i)) {
+            return;
+        }
+        int delta = test(flagged, i) ? -1 : 1;
+        flip(flagged, i);
+        numFlaggedSquares += delta;
+        if (test(mines, i)) {
+            numFlaggedMines += delta;
+        }
+        markDirty(r, c, r, c);
+        writeState();
+    }
+
+    @Override
+    public int uncoverSquare(int r, int c) {
+        int start = r * width + c;
+        if (test(flagged, start)) {
+            return 0;
+        }
+        if (test(mines, start)) {
+            explode();
+            return -1;
+        }
+        if (test(uncovered, start)) {
+            return 0;
+        }
+        flip(uncovered, start);
+        revealQueue[0] = start;
+        markDirty(r, c, r, c);
+        return fill(1);
+    }
+
+    @Override
+    public int[] getLastRevealed() {
+        return revealQueue;
+    }
+
+    @Override
+    public boolean takeDirtyBounds(int[] bounds) {
+        if (dirtyBottom < 0) {
+            return false;
+        }
+        bounds[0] = dirtyTop;
+        bounds[1] = dirtyLeft;
+        bounds[2] = dirtyBottom;
+        bounds[3] = dirtyRight;
+        dirtyTop = dirtyLeft = Integer.MAX_VALUE;
+        dirtyBottom = dirtyRight = -1;
+        return true;
+    }
+
+    /**
+     * Writes any changes still only in memory out to the file.
+     */
+    public void force() {
+        header.force();
+        planes.force();
+    }
+
+    /**
+     * Writes out any changes and closes the file. The mapping itself is released once the board is garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    /**
+     * Places the mines with {@link GameEngine#sampleMines}, on a board that has none yet.
+     */
+    private void placeMines(int[] safe) {
+        for (int w = 0; w < mines.capacity(); w++) {
+            mines.put(w, 0);
+            uncovered.put(w, 0);
+        }
+        numUncoveredSafe = 0;
+        GameEngine.sampleMines(seed, size, numMines, safe, i -> {
+            if (test(mines, i)) {
+                return false;
+            }
+            flip(mines, i);
+            return true;
+        });
+        // Flags placed before the first reveal stay put
+        numFlaggedMines = 0;
+        for (int w = 0; w < mines.capacity(); w++) {
+            numFlaggedMines += Long.bitCount(mines.get(w) & flagged.get(w));
+        }
+        markDirty(0, 0, height - 1, width - 1);
+        writeState();
+    }
+
+    /**
+     * Runs the flood fill from the squares already in the reveal queue, as {@link GameEngine} does.
+     *
+     * @param tail The number of starting squares in the queue.
+     * @return The number of squares in the queue when the fill is done.
+     */
+    private int fill(int tail) {
+        int[] queue = revealQueue;
+        for (int head = 0; head < tail; head++) {
+            int i = queue[head];
+            int row = i / width;
+            int col = i - row * width;
+            if (countMines(row, col) != 0) {
+                continue;
+            }
+
+            int rowStart = Math.max(0, row - 1), rowEnd = Math.min(height - 1, row + 1);
+            int colStart = Math.max(0, col - 1), colEnd = Math.min(width - 1, col + 1);
+            markDirty(rowStart, colStart, rowEnd, colEnd);
+            if (tail + 8 > queue.length) {
+                queue = Arrays.copyOf(queue, (int) Math.min((long) queue.length * 2, size));
+            }
+            for (int nr = rowStart; nr <= rowEnd; nr++) {
+                for (int n = nr * width + colStart, last = nr * width + colEnd; n <= last; n++) {
+                    if (!test(uncovered, n) && !test(flagged, n)) {
+                        flip(uncovered, n);
+                        queue[tail++] = n;
+                    }
+                }
+            }
+        }
+
+        revealQueue = queue;
+        numUncoveredSafe += tail;
+        writeState();
+        return tail;
+    }
+
+    /**
+     * Uncovers the whole board after a mine has been hit, a word of the planes at a time. Flagged squares stay covered.
+     */
+    private void explode() {
+        mineUncovered = true;
+        int words = mines.capacity();
+        for (int w = 0; w < words; w++) {
+            long valid = w == words - 1 && size % 64 != 0 ? (1L << size % 64) - 1 : -1L;
+            long before = uncovered.get(w);
+            long after = (before | ~flagged.get(w)) & valid;
+            numUncoveredSafe += Long.bitCount(after & ~before & ~mines.get(w));
+            uncovered.put(w, after);
+        }
+        markDirty(0, 0, height - 1, width - 1);
+        writeState();
+    }
+
+    /**
+     * @return How many of the squares around the given one are mines.
+     */
+    private int countMines(int r, int c) {
+        int rowStart = Math.max(0, r - 1), rowEnd = Math.min(height - 1, r + 1);
+        int colStart = Math.max(0, c - 1), colEnd = Math.min(width - 1, c + 1);
+        int count = 0;
+        for (int nr = rowStart; nr <= rowEnd; nr++) {
+            for (int n = nr * width + colStart, last = nr * width + colEnd; n <= last; n++) {
+                if (test(mines, n)) count++;
+            }
+        }
+        return test(mines, r * width + c) ? count - 1 : count;
+    }
+
+    /**
+     * Copies the flags and counters into the file's header.
+     */
+    private void writeState() {
+        header.putInt(BoardFile.FLAGS, (started ? BoardFile.STARTED : 0) | (mineUncovered ? BoardFile.MINE_UNCOVERED : 0)
+                | (safeNeighborhood ? BoardFile.SAFE_NEIGHBORHOOD : 0));
+        header.putInt(BoardFile.FLAGGED_SQUARES, numFlaggedSquares);
+        header.putInt(BoardFile.UNCOVERED_SAFE, numUncoveredSafe);
+        header.putInt(BoardFile.FLAGGED_MINES, numFlaggedMines);
+    }
+
+    private void markDirty(int top, int left, int bottom, int right) {
+        if (top < dirtyTop) dirtyTop = top;
+        if (left < dirtyLeft) dirtyLeft = left;
+        if (bottom > dirtyBottom) dirtyBottom = bottom;
+        if (right > dirtyRight) dirtyRight = right;
+    }
+
+    private static boolean test(LongBuffer plane, int i) {
+        return (plane.get(i >>> 6) >>> i & 1) != 0; // a long shift only uses the low six bits of i
+    }
+
+    private static void flip(LongBuffer plane, int i) {
+        plane.put(i >>> 6, plane.get(i >>> 6) ^ 1L << i);
+    }
+}
@@ -0,0 +1,365 @@
+package minesweeper;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for the hot paths: painting, the flood fill, dealing a board and the win check.
+ * They are off unless the game is started with {@code -Dminesweeper.metrics=true}. {@link #ENABLED} is a constant,
+ * and every place that measures something checks it first, so when it is off the JIT drops the measuring code
+ * and the hot paths cost what they did before.
+ *
+ * When on, every counter and histogram is registered as an MXBean under the domain "minesweeper", where
+ * JConsole or VisualVM can watch them, and the flood fill, paint and deal each commit a JFR event (category
+ * "Minesweeper") that a flight recording picks up:
+ * <pre>
+ * java -Dminesweeper.metrics=true -XX:StartFlightRecording=filename=game.jfr -jar minesweeper.jar
+ * </pre>
+ */
+public final class Metrics {
+    /** Whether the metrics are collected; read once from the minesweeper.metrics system property. */
+    public static final boolean ENABLED = Boolean.getBoolean("minesweeper.metrics");
+
+    /** Time to paint the board and status, in nanoseconds. */
+    public static final Histogram PAINT_NANOS = new Histogram();
+    /** Squares drawn per paint. */
+    public static final Histogram PAINT_SQUARES = new Histogram();
+    /** Time taken by one flood fill, in nanoseconds, from a reveal or a chord. */
+    public static final Histogram FILL_NANOS = new Histogram();
+    /** Squares uncovered by one flood fill. */
+    public static final Histogram FILL_SQUARES = new Histogram();
+    /** Time to deal a board on the first click, searching for a no-guess board included, in nanoseconds. */
+    public static final Histogram DEAL_NANOS = new Histogram();
+    /** Seeds tried per no-guess board before one could be solved without guessing. */
+    public static final Histogram DEAL_ATTEMPTS = new Histogram();
+    /** Time taken by {@link GameEngine#hasWon()}, in nanoseconds; large only when assertions recount the board. */
+    public static final Histogram HAS_WON_NANOS = new Histogram();
+
+    /** Squares uncovered by flood fills, in total. */
+    public static final Counter SQUARES_UNCOVERED = new Counter();
+    /** Squares drawn by paints, in total. */
+    public static final Counter SQUARES_DRAWN = new Counter();
+    /** Boards dealt, in total. */
+    public static final Counter BOARDS_DEALT = new Counter();
+
+    static {
+        if (ENABLED) {
+            register();
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Records a flood fill. Only called when the metrics are enabled.
+     *
+     * @param squares The squares it uncovered
+     * @param nanos   How long it took
+     */
+    static void fill(int squares, long nanos) {
+        FILL_NANOS.record(nanos);
+        FILL_SQUARES.record(squares);
+        SQUARES_UNCOVERED.add(squares);
+        FillEvent event = new FillEvent();
+        if (event.shouldCommit()) {
+            event.squares = squares;
+            event.nanos = nanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records a paint of the board. Only called when the metrics are enabled.
+     *
+     * @param squares The squares it drew
+     * @param nanos   How long it took
+     */
+    static void paint(int squares, long nanos) {
+        PAINT_NANOS.record(nanos);
+        PAINT_SQUARES.record(squares);
+        SQUARES_DRAWN.add(squares);
+        PaintEvent event = new PaintEvent();
+        if (event.shouldCommit()) {
+            event.squares = squares;
+            event.nanos = nanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records a board being dealt. Only called when the metrics are enabled.
+     *
+     * @param attempts Seeds tried for a no-guess board, or 0 for an ordinary board
+     * @param nanos    How long it took
+     */
+    static void deal(long attempts, long nanos) {
+        DEAL_NANOS.record(nanos);
+        if (attempts > 0) {
+            DEAL_ATTEMPTS.record(attempts);
+        }
+        BOARDS_DEALT.add(1);
+        DealEvent event = new DealEvent();
+        if (event.shouldCommit()) {
+            event.attempts = attempts;
+            event.nanos = nanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * Registers every counter and histogram with the platform MBean server.
+     */
+    private static void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(PAINT_NANOS, name("Histogram", "paintNanos"));
+            server.registerMBean(PAINT_SQUARES, name("Histogram", "paintSquares"));
+            server.registerMBean(FILL_NANOS, name("Histogram", "fillNanos"));
+            server.registerMBean(FILL_SQUARES, name("Histogram", "fillSquares"));
+            server.registerMBean(DEAL_NANOS, name("Histogram", "dealNanos"));
+            server.registerMBean(DEAL_ATTEMPTS, name("Histogram", "dealAttempts"));
+            server.registerMBean(HAS_WON_NANOS, name("Histogram", "hasWonNanos"));
+            server.registerMBean(SQUARES_UNCOVERED, name("Counter", "squaresUncovered"));
+            server.registerMBean(SQUARES_DRAWN, name("Counter", "squaresDrawn"));
+            server.registerMBean(BOARDS_DEALT, name("Counter", "boardsDealt"));
+        } catch (JMException e) {
+            System.err.println("Could not register the metrics with JMX: " + e.getMessage());
+        }
+    }
+
+    private static ObjectName name(String type, String name) throws JMException {
+        return new ObjectName("minesweeper:type=" + type + ",name=" + name);
+    }
+
+    /** What JMX shows of a {@link Counter}. */
+    public interface CounterMXBean {
+        /** @return The total so far. */
+        long getCount();
+
+        /** Sets the total back to 0. */
+        void reset();
+    }
+
+    /**
+     * A running total that many threads can add to without contending, backed by a {@link LongAdder}.
+     */
+    public static final class Counter implements CounterMXBean {
+        private final LongAdder count = new LongAdder();
+
+        /**
+         * Adds to the total.
+         *
+         * @param n The amount to add
+         */
+        public void add(long n) {
+            count.add(n);
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public void reset() {
+            count.reset();
+        }
+    }
+
+    /** What JMX shows of a {@link Histogram}. */
+    public interface HistogramMXBean {
+        /** @return The number of values recorded. */
+        long getCount();
+
+        /** @return The mean of the values recorded. */
+        double getMean();
+
+        /** @return The largest value recorded. */
+        long getMax();
+
+        /** @return The median. */
+        long getP50();
+
+        /** @return The 99th percentile. */
+        long getP99();
+
+        /** @return The 99.9th percentile. */
+        long getP999();
+
+        /** Forgets every value recorded. */
+        void reset();
+    }
+
+    /**
+     * A histogram of non-negative values laid out as in HdrHistogram: exact buckets for values below 32, then
+     * 16 buckets for each power of two above that. Every value lands in a bucket within 1/16 (about 6%) of it,
+     * whatever its size, so one fixed array of 960 counts covers nanoseconds to centuries. Recording is a
+     * couple of shifts and an atomic increment, and allocates nothing. Safe to record from any thread;
+     * percentiles read while values are being recorded may be off by the values in flight.
+     */
+    public static final class Histogram implements HistogramMXBean {
+        private static final int EXACT = 32; // values below this get a bucket each
+        private static final int SUB_BUCKETS = 16; // buckets per power of two above that
+        private static final int BUCKETS = SUB_BUCKETS * 60;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong(), sum = new AtomicLong(), max = new AtomicLong();
+
+        /**
+         * Adds a value to the histogram.
+         *
+         * @param value The value, which must not be negative
+         */
+        public void record(long value) {
+            counts.incrementAndGet(bucket(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        /**
+         * Finds the value below which the given share of the recorded values lie, to within a bucket.
+         *
+         * @param percentile The share, from 0 to 100
+         * @return The largest value in the bucket holding that percentile (never more than the maximum),
+         *         or 0 if nothing has been recorded.
+         */
+        public long getValueAtPercentile(double percentile) {
+            long total = count.get();
+            if (total == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += counts.get(b);
+                if (seen >= target) {
+                    return Math.min(highestInBucket(b), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        @Override
+        public long getCount() {
+            return count.get();
+        }
+
+        @Override
+        public double getMean() {
+            long total = count.get();
+            return total == 0 ? 0 : (double) sum.get() / total;
+        }
+
+        @Override
+        public long getMax() {
+            return max.get();
+        }
+
+        @Override
+        public long getP50() {
+            return getValueAtPercentile(50);
+        }
+
+        @Override
+        public long getP99() {
+            return getValueAtPercentile(99);
+        }
+
+        @Override
+        public long getP999() {
+            return getValueAtPercentile(99.9);
+        }
+
+        @Override
+        public void reset() {
+            for (int b = 0; b < BUCKETS; b++) {
+                counts.set(b, 0);
+            }
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+
+        /**
+         * @return The bucket of a value: the value itself below 32, otherwise 16 per power of two,
+         *         picked by the four bits after the leading one.
+         */
+        static int bucket(long value) {
+            if (value < EXACT) {
+                return (int) Math.max(0, value);
+            }
+            int shift = 59 - Long.numberOfLeadingZeros(value); // leaves the top five bits
+            return SUB_BUCKETS * shift + (int) (value >>> shift);
+        }
+
+        /**
+         * @return The largest value that lands in the given bucket.
+         */
+        static long highestInBucket(int bucket) {
+            if (bucket < EXACT) {
+                return bucket;
+            }
+            int shift = bucket / SUB_BUCKETS - 1;
+            long top = bucket % SUB_BUCKETS + SUB_BUCKETS;
+            return ((top + 1) << shift) - 1;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count %,d, mean %.1f, p50 %,d, p99 %,d, p99.9 %,d, max %,d",
+                    getCount(), getMean(), getP50(), getP99(), getP999(), getMax());
+        }
+    }
+
+    @Name("minesweeper.FloodFill")
+    @Label("Flood Fill")
+    @Category("Minesweeper")
+    @Description("Squares uncovered by one reveal or chord")
+    static final class FillEvent extends jdk.jfr.Event {
+        @Label("Squares")
+        int squares;
+
+        @Label("Time")
+        @Timespan
+        long nanos;
+    }
+
+    @Name("minesweeper.Paint")
+    @Label("Paint")
+    @Category("Minesweeper")
+    @Description("One paint of the board")
+    static final class PaintEvent extends jdk.jfr.Event {
+        @Label("Squares Drawn")
+        int squares;
+
+        @Label("Time")
+        @Timespan
+        long nanos;
+    }
+
+    @Name("minesweeper.Deal")
+    @Label("Deal")
+    @Category("Minesweeper")
+    @Description("Placing the mines on the first click")
+    static final class DealEvent extends jdk.jfr.Event {
+        @Label("No-Guess Seeds Tried")
+        long attempts;
+
+        @Label("Time")
+        @Timespan
+        long nanos;
+    }
+}
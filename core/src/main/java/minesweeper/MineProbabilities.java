@@ -0,0 +1,286 @@
+package minesweeper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The chance that each covered square is a mine, given the numbers uncovered so far and the number of
+ * mines on the board, for drawing a heatmap over the board.
+ *
+ * The {@link Solver} first settles what the simple rules can prove. The rest of the frontier is split into
+ * independent groups ({@link FrontierGroup}), and every placement of mines over each group is counted by
+ * its number of mines. Each placement is then weighed by the number of ways the mines left over can be
+ * spread across the covered squares away from the frontier, which ties the groups together through the
+ * total mine count. Squares away from the frontier all get the same chance.
+ *
+ * Enumeration is the expensive part, so results are kept per group and reused as long as a group's squares
+ * and numbers are unchanged; a move normally touches only one or two groups. The groups that do need
+ * enumerating run in parallel on the common fork/join pool.
+ *
+ * Groups too large to enumerate exactly are treated like squares away from the frontier, so their chances
+ * are estimates; this only happens on very open boards with long unbroken frontiers.
+ *
+ * Each recomputation fills a new array and publishes it in one volatile write, so the heatmap can be painted
+ * on another thread while the next one runs, and always shows one whole set of chances.
+ */
+public class MineProbabilities {
+    private static final int MAX_STEPS = 1 << 20;
+
+    private final GameEngine game;
+    private final Solver solver;
+    private volatile float[] probabilities; // never changed once published
+    private Map<FrontierGroup, FrontierGroup> cache = new HashMap<>();
+    private int groupsEnumerated, groupsReused;
+    private long refreshNanos;
+
+    /**
+     * Constructs the probabilities for a game, taking into account any moves already made.
+     *
+     * @param game The game to follow
+     */
+    public MineProbabilities(GameEngine game) {
+        this.game = game;
+        this.solver = new Solver(game);
+        solver.sync();
+        refresh();
+    }
+
+    /**
+     * Takes newly uncovered squares into account and recomputes the probabilities.
+     *
+     * @param squares Indexes of the squares, row * width + col, as left by {@link GameEngine#getLastRevealed()}
+     * @param count   Number of entries of squares to use
+     */
+    public void update(int[] squares, int count) {
+        solver.update(squares, count);
+        refresh();
+    }
+
+    /**
+     * @param r Row index
+     * @param c Column index
+     * @return The chance from 0 to 1 that the square is a mine, or NaN if it is uncovered.
+     */
+    public float get(int r, int c) {
+        return probabilities[r * game.getWidth() + c];
+    }
+
+    /**
+     * @return Every square's chance, indexed row * width + col, as of the last recomputation. The array is
+     *         never changed afterwards, so it can be read on any thread; it must not be written to.
+     */
+    float[] snapshot() {
+        return probabilities;
+    }
+
+    /** @return How long the last recomputation took, in nanoseconds. */
+    public long getRefreshNanos() {
+        return refreshNanos;
+    }
+
+    /** @return The number of groups enumerated by the last recomputation. */
+    public int getGroupsEnumerated() {
+        return groupsEnumerated;
+    }
+
+    /** @return The number of groups whose earlier results the last recomputation reused. */
+    public int getGroupsReused() {
+        return groupsReused;
+    }
+
+    /**
+     * Recomputes every probability from the current state of the board.
+     */
+    public void refresh() {
+        long start = System.nanoTime();
+        solver.propagateAll();
+        List<FrontierGroup> groups = solver.groups();
+
+        // Reuse the results of unchanged groups and enumerate the rest in parallel
+        Map<FrontierGroup, FrontierGroup> kept = new HashMap<>();
+        List<FrontierGroup> missing = new ArrayList<>();
+        for (int k = 0; k < groups.size(); k++) {
+            FrontierGroup cached = cache.get(groups.get(k));
+            if (cached != null) {
+                groups.set(k, cached);
+            } else {
+                missing.add(groups.get(k));
+            }
+        }
+        if (missing.size() == 1) {
+            missing.get(0).enumerate(Integer.MAX_VALUE, MAX_STEPS);
+        } else if (!missing.isEmpty()) {
+            ForkJoinPool.commonPool().invoke(new EnumerateTask(missing, 0, missing.size()));
+        }
+        List<FrontierGroup> exact = new ArrayList<>();
+        for (FrontierGroup g : groups) {
+            kept.put(g, g);
+            if (g.isComplete()) {
+                exact.add(g);
+            }
+        }
+        groupsEnumerated = missing.size();
+        groupsReused = groups.size() - missing.size();
+        cache = kept;
+
+        float[] next = new float[game.getHeight() * game.getWidth()];
+        combine(exact, next);
+        probabilities = next;
+        refreshNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Weighs the placements of the groups against each other and against the rest of the board,
+     * and writes out the probability of every square.
+     *
+     * @param probabilities Where to write them, indexed row * width + col
+     */
+    private void combine(List<FrontierGroup> groups, float[] probabilities) {
+        int minesLeft = game.getNumMines() - solver.getNumKnownMines();
+        int interior = solver.getNumUnknown();
+        for (FrontierGroup g : groups) {
+            interior -= g.size();
+        }
+
+        // rest[s]: ways to place the mines left, less s on the frontier, on the interior (scaled)
+        double[] rest = restWeights(interior, minesLeft);
+
+        // Each group's placement counts by number of mines, scaled so the largest is 1,
+        // and the products of the groups before and after each one
+        int n = groups.size();
+        double[][] weights = new double[n][];
+        double[] scales = new double[n];
+        for (int k = 0; k < n; k++) {
+            FrontierGroup g = groups.get(k);
+            double max = 0;
+            for (int m = 0; m <= g.size(); m++) {
+                max = Math.max(max, g.solutions(m));
+            }
+            scales[k] = max == 0 ? 1 : 1 / max;
+            weights[k] = new double[g.size() + 1];
+            for (int m = 0; m <= g.size(); m++) {
+                weights[k][m] = g.solutions(m) * scales[k];
+            }
+        }
+        double[][] prefix = new double[n + 1][];
+        double[][] suffix = new double[n + 1][];
+        prefix[0] = suffix[n] = new double[] { 1 };
+        for (int k = 0; k < n; k++) {
+            prefix[k + 1] = convolve(prefix[k], weights[k], minesLeft);
+        }
+        for (int k = n - 1; k >= 0; k--) {
+            suffix[k] = convolve(weights[k], suffix[k + 1], minesLeft);
+        }
+
+        double total = 0, interiorMines = 0;
+        double[] all = prefix[n];
+        for (int s = 0; s < all.length; s++) {
+            total += all[s] * rest[s];
+            interiorMines += all[s] * rest[s] * (minesLeft - s);
+        }
+
+        Arrays.fill(probabilities, Float.NaN);
+        if (!(total > 0)) {
+            return; // the numbers contradict each other
+        }
+        int width = game.getWidth();
+        float interiorChance = interior == 0 ? 0 : (float) (interiorMines / total / interior);
+        for (int i = 0; i < probabilities.length; i++) {
+            if (solver.isUnknown(i)) {
+                probabilities[i] = interiorChance;
+            } else if ((game.cellAt(i) & GameEngine.UNCOVERED) == 0) {
+                probabilities[i] = solver.isKnownMine(i / width, i % width) ? 1 : 0;
+            }
+        }
+
+        for (int k = 0; k < n; k++) {
+            FrontierGroup g = groups.get(k);
+            double[] others = convolve(prefix[k], suffix[k + 1], minesLeft);
+            // elsewhere[m]: share of all the weight held by placements elsewhere when this group has m mines
+            int maxMines = Math.min(g.size(), minesLeft);
+            double[] elsewhere = new double[maxMines + 1];
+            for (int m = 0; m <= maxMines; m++) {
+                double sum = 0;
+                for (int s = 0; s < others.length && s + m <= minesLeft; s++) {
+                    sum += others[s] * rest[s + m];
+                }
+                elsewhere[m] = sum * scales[k] / total;
+            }
+            for (int x = 0; x < g.size(); x++) {
+                int cls = g.classOf(x);
+                double mines = 0;
+                for (int m = 0; m <= maxMines; m++) {
+                    mines += g.classMines(m, cls) * elsewhere[m];
+                }
+                probabilities[g.cellAt(x)] = (float) (mines / g.classSize(cls));
+            }
+        }
+    }
+
+    /**
+     * Multiplies two distributions of mine counts, dropping counts above the limit.
+     */
+    private static double[] convolve(double[] a, double[] b, int limit) {
+        int degree = Math.min(limit, a.length + b.length - 2);
+        double[] out = new double[degree + 1];
+        for (int x = 0; x < a.length && x <= degree; x++) {
+            if (a[x] == 0) continue;
+            for (int y = 0; y < b.length && x + y <= degree; y++) {
+                out[x + y] += a[x] * b[y];
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @return For s from 0 to minesLeft, the number of ways to place minesLeft - s mines on the interior
+     *         squares, all divided by the largest of them so they fit in a double.
+     */
+    private static double[] restWeights(int interior, int minesLeft) {
+        int maxFrontier = minesLeft;
+        double[] log = new double[maxFrontier + 1];
+        Arrays.fill(log, Double.NEGATIVE_INFINITY);
+        int first = Math.max(0, minesLeft - interior);
+        double max = Double.NEGATIVE_INFINITY;
+        for (int s = first; s <= maxFrontier; s++) {
+            // C(interior, k - 1) / C(interior, k) = k / (interior - k + 1), with k = minesLeft - s + 1
+            log[s] = s == first ? 0 : log[s - 1] + Math.log((double) (minesLeft - s + 1) / (interior - minesLeft + s));
+            max = Math.max(max, log[s]);
+        }
+        double[] w = new double[maxFrontier + 1];
+        for (int s = first; s <= maxFrontier; s++) {
+            w[s] = Math.exp(log[s] - max);
+        }
+        return w;
+    }
+
+    /**
+     * Enumerates a range of groups, splitting it in half until each task has one group.
+     */
+    @SuppressWarnings("serial")
+    private static class EnumerateTask extends RecursiveAction {
+        private final List<FrontierGroup> groups;
+        private final int from, to;
+
+        EnumerateTask(List<FrontierGroup> groups, int from, int to) {
+            this.groups = groups;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                groups.get(from).enumerate(Integer.MAX_VALUE, MAX_STEPS);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new EnumerateTask(groups, from, mid), new EnumerateTask(groups, mid, to));
+        }
+    }
+}
@@ -1,3 +1,5 @@
+package minesweeper;
+
 import java.awt.*;
 
 /**
@@ -9,11 +11,12 @@ public class MineSquare extends Square {
     /**
      * Constructs a MineSquare. Initially looks like a covered square.
      *
+     * @param grid the grid that holds the state of this square
      * @param row the row index of the square
      * @param col the column index of the square
      */
-    public MineSquare(int row, int col) {
-        super(row, col);
+    public MineSquare(Grid grid, int row, int col) {
+        super(grid, row, col);
         setBackgroundColor(Color.LIGHT_GRAY); // Hidden like other squares
     }
 
@@ -0,0 +1,183 @@
+package minesweeper;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class Minesweeper {
+    private static final String TITLE = "Minesweeper By Kali Banghart - CS 2100 Final Project SP25";
+    private static final String[] PRESETS = { "beginner", "intermediate", "expert" };
+    private static final int MAX_SQUARES = 1 << 28; // a byte each, so the largest board takes 256 MB
+    private static int deals; // new games asked for from the menu; only the last one is shown
+    /**************************************
+     * Please evaluate for:
+     * - first selection can’t be a mine
+     * - number colors by value
+     * - recursive uncovering
+     **************************************/
+
+    /**
+     * Opens the game window. Options: --board beginner|intermediate|expert|ROWSxCOLS:MINES picks the board
+     * (10x12 with 10 mines by default) and --mines N changes its number of mines; --seed N deals the board from
+     * a given seed, so a game can be played again; --record FILE writes a replay log of the moves (see
+     * {@link Replay}); --infinite [--density D] plays a board with no edges ({@link ChunkedBoard}); a file named
+     * on its own is a saved game to carry on with. The Game menu starts a new game on any board.
+     */
+    public static void main(String[] args) throws IOException {
+        Long seed = null;
+        Path record = null, savedFile = null;
+        boolean infinite = false;
+        double density = 0.18;
+        int[] size = { 10, 12, 10 }; // rows, columns, mines
+        Integer mines = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--board": size = BatchSimulator.parseBoard(args[++i]); break;
+                case "--mines": mines = Integer.parseInt(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--record": record = Path.of(args[++i]); break;
+                case "--infinite": infinite = true; break;
+                case "--density": density = Double.parseDouble(args[++i]); break;
+                default: savedFile = Path.of(args[i]);
+            }
+        }
+
+        if (infinite) {
+            ChunkedBoard chunked = new ChunkedBoard(seed != null ? seed : new Random().nextLong(), density);
+            System.out.println("Seed " + chunked.getSeed());
+            SwingUtilities.invokeLater(() -> {
+                JFrame window = new JFrame("Minesweeper - infinite");
+                window.setSize(800, 700);
+                window.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+                window.add(new InfiniteComponent(chunked));
+                window.setVisible(true);
+            });
+            return;
+        }
+
+        // A saved game is played straight from its file, so huge boards open at once
+        Board board;
+        if (savedFile != null) {
+            board = BoardFile.map(savedFile);
+        } else {
+            board = new GameEngine(size[0], size[1], mines != null ? mines : size[2],
+                    seed != null ? seed : new Random().nextLong());
+            System.out.println("Seed " + board.getSeed());
+        }
+        ReplayWriter recorder = null;
+        if (record != null) {
+            if (!(board instanceof GameEngine) || board.isStarted()) {
+                throw new IllegalArgumentException("Only new games can be recorded");
+            }
+            recorder = ReplayWriter.create(record, (GameEngine) board);
+        }
+        Path saveFile = savedFile != null ? savedFile : Path.of("minesweeper.mines");
+        ReplayWriter log = recorder;
+
+        // The game is driven entirely by mouse events, so the main thread only has to build the window
+        SwingUtilities.invokeLater(() -> {
+            JFrame window = new JFrame(TITLE);
+            window.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            window.setJMenuBar(gameMenu(window, saveFile));
+            GameComponent game = show(window, board, saveFile);
+            game.setRecorder(log);
+
+            // Big enough for the board at its usual square size, but no bigger than most of the screen
+            Dimension wanted = game.getPreferredSize();
+            Rectangle screen = GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds();
+            window.setSize(Math.max(400, Math.min(wanted.width + 40, screen.width * 9 / 10)),
+                    Math.max(300, Math.min(wanted.height + 80, screen.height * 9 / 10)));
+            window.setVisible(true);
+        });
+    }
+
+    /**
+     * Puts a board in the window in place of the one there, whose engine thread is told to stop; it finishes
+     * any move it is in the middle of in the background.
+     *
+     * @return The component playing the board.
+     */
+    private static GameComponent show(JFrame window, Board board, Path saveFile) {
+        Container content = window.getContentPane();
+        for (Component old : content.getComponents()) {
+            GameComponent oldGame = (GameComponent) ((JScrollPane) old).getViewport().getView();
+            oldGame.close();
+        }
+        content.removeAll();
+        GameComponent game = new GameComponent(board, saveFile);
+        content.add(new JScrollPane(game));
+        window.revalidate();
+        game.requestFocusInWindow();
+        return game;
+    }
+
+    /**
+     * Builds the Game menu: a new game on one of the usual boards, or on a board of any size. A new board
+     * is not recorded, even if the first one was.
+     */
+    private static JMenuBar gameMenu(JFrame window, Path saveFile) {
+        JMenu menu = new JMenu("Game");
+        for (String preset : PRESETS) {
+            JMenuItem item = new JMenuItem(Character.toUpperCase(preset.charAt(0)) + preset.substring(1));
+            item.addActionListener(e -> newGame(window, saveFile, BatchSimulator.parseBoard(preset)));
+            menu.add(item);
+        }
+        JMenuItem custom = new JMenuItem("Custom...");
+        custom.addActionListener(e -> {
+            String answer = JOptionPane.showInputDialog(window, "Rows x columns : mines", "4000x4000:2400000");
+            if (answer == null) return;
+            try {
+                newGame(window, saveFile, BatchSimulator.parseBoard(answer.replace(" ", "")));
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(window, ex.getMessage(), "Custom board", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+        menu.addSeparator();
+        menu.add(custom);
+        JMenuBar bar = new JMenuBar();
+        bar.add(menu);
+        return bar;
+    }
+
+    /**
+     * Starts a new game with a random seed on a board of the given size. Dealing a board of millions of
+     * squares takes a while, so it is done on a thread of its own and the board replaces the old one when it
+     * is ready; the old game can be played until then. If another game is asked for in the meantime, only the
+     * last one is shown.
+     *
+     * @param size Rows, columns and mines
+     * @throws IllegalArgumentException If the board is empty or too big, or the mines don't fit on it.
+     */
+    private static void newGame(JFrame window, Path saveFile, int[] size) {
+        if (size[0] <= 0 || size[1] <= 0 || (long) size[0] * size[1] > MAX_SQUARES) {
+            throw new IllegalArgumentException("A board needs 1 to " + MAX_SQUARES + " squares");
+        }
+        if (size[2] < 0 || size[2] > size[0] * size[1]) {
+            throw new IllegalArgumentException("Cannot place " + size[2] + " mines on a " + size[0] + "x" + size[1] + " board");
+        }
+        int deal = ++deals;
+        window.setTitle(TITLE + " - dealing " + size[0] + "x" + size[1]);
+        Thread dealer = new Thread(() -> {
+            try {
+                GameEngine engine = new GameEngine(size[0], size[1], size[2], new Random().nextLong());
+                System.out.println("Seed " + engine.getSeed());
+                SwingUtilities.invokeLater(() -> {
+                    if (deal != deals) return;
+                    window.setTitle(TITLE);
+                    show(window, engine, saveFile);
+                });
+            } catch (OutOfMemoryError e) {
+                SwingUtilities.invokeLater(() -> {
+                    if (deal != deals) return;
+                    window.setTitle(TITLE);
+                    JOptionPane.showMessageDialog(window, "Not enough memory for a " + size[0] + "x" + size[1]
+                            + " board", "New game", JOptionPane.ERROR_MESSAGE);
+                });
+            }
+        }, "minesweeper-deal");
+        dealer.setDaemon(true);
+        dealer.start();
+    }
+}
@@ -0,0 +1,25 @@
+package minesweeper;
+
+/**
+ * A way of playing Minesweeper, for bots and simulations that drive a {@link GameEngine} directly.
+ * {@link BatchSimulator} asks the strategy for one move at a time until the game is over.
+ * An instance is only ever used by one thread, so it may keep state between moves.
+ */
+public interface MoveStrategy {
+    /**
+     * Called before the first move of every game, after the board has been reset.
+     * The default does nothing.
+     *
+     * @param game The game about to be played
+     * @param seed The seed of the game, for strategies that make random choices
+     */
+    default void newGame(GameEngine game, long seed) {
+    }
+
+    /**
+     * Makes one move on the game: a reveal, a flag or a chord.
+     *
+     * @param game The game being played, which is not over yet
+     */
+    void move(GameEngine game);
+}
@@ -0,0 +1,229 @@
+package minesweeper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finds boards that can be solved from the first click without ever guessing.
+ *
+ * A board is identified by its seed: {@link GameEngine} always lays out the same mines for the same seed,
+ * first click and safe neighborhood setting. The generator tries seeds one after another, lays out each
+ * board around the first click with the 3x3 block around it kept clear, and plays it with the
+ * {@link Solver}. A board is accepted if the solver uncovers every safe square without running out of
+ * squares it can prove safe. Accepted seeds can be stored in pools and played later with
+ * {@link GameEngine#setSafeNeighborhood(boolean)} on.
+ *
+ * Run with: java -cp core/target/minesweeper-core-1.0-SNAPSHOT.jar minesweeper.NoGuessGenerator
+ * [--size ROWSxCOLS] [--boards N] [--threads N] to print the boards per second and the share of
+ * boards accepted for a range of mine densities.
+ */
+public class NoGuessGenerator {
+    private static final int DEFAULT_MAX_ATTEMPTS = 100_000;
+
+    private final int height, width, numMines;
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private final LongAdder attempts = new LongAdder(), accepted = new LongAdder();
+
+    /**
+     * Constructs a generator for boards of one size.
+     *
+     * @param height   number of rows
+     * @param width    number of columns
+     * @param numMines number of mines
+     */
+    public NoGuessGenerator(int height, int width, int numMines) {
+        if (numMines < 0 || numMines > (long) height * width - 1) {
+            throw new IllegalArgumentException("Cannot place " + numMines + " mines on a " + height + "x" + width + " grid");
+        }
+        this.height = height;
+        this.width = width;
+        this.numMines = numMines;
+    }
+
+    /**
+     * Sets how many seeds to try for one board before giving up. Dense boards are rarely solvable
+     * without guessing, so some limit is needed.
+     *
+     * @param maxAttempts Seeds to try per board
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    /** @return How many seeds are tried for one board before giving up. */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /** @return The number of boards tried so far. */
+    public long getAttempts() {
+        return attempts.sum();
+    }
+
+    /** @return The number of boards accepted so far. */
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    /**
+     * Finds a board that can be solved without guessing, on the calling thread.
+     *
+     * @param safeRow Row of the first click
+     * @param safeCol Column of the first click
+     * @param seed    Where to start the search; the same seed always finds the same board
+     * @return The seed of the board, or empty if none was found within the attempt limit.
+     */
+    public OptionalLong findSeed(int safeRow, int safeCol, long seed) {
+        return new Verifier().search(safeRow, safeCol, seed);
+    }
+
+    /**
+     * Finds a pool of boards that can be solved without guessing, spreading the boards over a thread pool.
+     * Board k is searched from seed firstSeed + k, so the pool is the same whatever the number of threads.
+     *
+     * @param count     Number of boards
+     * @param safeRow   Row of the first click
+     * @param safeCol   Column of the first click
+     * @param firstSeed Where to start the search for the first board
+     * @param pool      Runs the workers; it is not shut down
+     * @param workers   Number of workers to start, normally the number of threads in the pool
+     * @return The seeds of the boards; a board for which no seed was found within the attempt limit is left out.
+     * @throws InterruptedException If the thread is interrupted while waiting for the workers.
+     */
+    public long[] generatePool(int count, int safeRow, int safeCol, long firstSeed, ExecutorService pool, int workers)
+            throws InterruptedException {
+        long[] seeds = new long[count];
+        boolean[] found = new boolean[count];
+        AtomicInteger nextBoard = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < workers; w++) {
+            futures.add(pool.submit(() -> {
+                Verifier verifier = new Verifier();
+                int board;
+                while ((board = nextBoard.getAndIncrement()) < count) {
+                    OptionalLong seed = verifier.search(safeRow, safeCol, firstSeed + board);
+                    if (seed.isPresent()) {
+                        seeds[board] = seed.getAsLong();
+                        found[board] = true;
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Board generation worker failed", e.getCause());
+            }
+        }
+
+        int n = 0;
+        for (int board = 0; board < count; board++) {
+            if (found[board]) {
+                seeds[n++] = seeds[board];
+            }
+        }
+        return n == count ? seeds : Arrays.copyOf(seeds, n);
+    }
+
+    /**
+     * @return The seed of the given attempt when searching from a seed, spread out with SplitMix64
+     *         so that nearby starting seeds don't try the same boards.
+     */
+    private static long attemptSeed(long seed, long attempt) {
+        long z = seed + (attempt + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * A board and a solver for trying seeds, reused between attempts. Used by one thread at a time.
+     */
+    private class Verifier {
+        private final GameEngine engine = new GameEngine(height, width, numMines, 0);
+        private final Solver solver = new Solver(engine);
+
+        Verifier() {
+            engine.setSafeNeighborhood(true);
+        }
+
+        OptionalLong search(int safeRow, int safeCol, long seed) {
+            for (int attempt = 0; attempt < maxAttempts; attempt++) {
+                long candidate = attemptSeed(seed, attempt);
+                attempts.increment();
+                if (solvable(safeRow, safeCol, candidate)) {
+                    accepted.increment();
+                    return OptionalLong.of(candidate);
+                }
+            }
+            return OptionalLong.empty();
+        }
+
+        /**
+         * Plays the board with the given seed using only moves the solver can prove safe.
+         *
+         * @return Whether every safe square was uncovered.
+         */
+        boolean solvable(int safeRow, int safeCol, long seed) {
+            engine.newGame(seed);
+            solver.reset();
+            int uncovered = engine.reveal(safeRow, safeCol);
+            while (true) {
+                solver.update(engine.getLastRevealed(), uncovered);
+                if (engine.getNumSafeRemaining() == 0) {
+                    return true;
+                }
+                int i = solver.nextSafe();
+                if (i < 0) {
+                    return false;
+                }
+                uncovered = engine.reveal(i / width, i % width);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int height = 16, width = 30, boards = 200;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--size":
+                    String size = args[++i];
+                    height = Integer.parseInt(size.substring(0, size.indexOf('x')));
+                    width = Integer.parseInt(size.substring(size.indexOf('x') + 1));
+                    break;
+                case "--boards": boards = Integer.parseInt(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            new NoGuessGenerator(height, width, height * width / 8)
+                    .generatePool(Math.min(boards, 50), height / 2, width / 2, 0, pool, threads); // warm-up
+            System.out.printf("%dx%d boards, first click in the middle, %d threads%n", height, width, threads);
+            for (double density : new double[] { 0.10, 0.12, 0.14, 0.16, 0.18, 0.20, 0.206, 0.22 }) {
+                NoGuessGenerator generator = new NoGuessGenerator(height, width, (int) Math.round(height * width * density));
+                generator.setMaxAttempts(20_000);
+                long start = System.nanoTime();
+                long[] seeds = generator.generatePool(boards, height / 2, width / 2, 1, pool, threads);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("density %.3f (%d mines): %,.0f boards/s, %.2f%% of %,d boards tried accepted%n",
+                        density, generator.numMines, seeds.length / seconds,
+                        100.0 * generator.getAccepted() / generator.getAttempts(), generator.getAttempts());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
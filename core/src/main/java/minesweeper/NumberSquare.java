@@ -1,3 +1,5 @@
+package minesweeper;
+
 import java.awt.*;
 
 /**
@@ -6,20 +8,19 @@ import java.awt.*;
  * as well as rendering the square with its respective visual representation.
  */
 public class NumberSquare extends Square {
-    private int neighbors; 
     private Color numberColor; 
 
     /**
-     * Constructs a NumberSquare with the specified number of neighboring mines, row, and column.
+     * Constructs a NumberSquare view for the specified row and column.
+     * The number of neighboring mines is read from the grid.
      * Initializes the background and number color of the square.
      *
-     * @param neighbors The number of neighboring mines.
+     * @param grid The grid that holds the state of this square.
      * @param row The row position of the square in the grid.
      * @param col The column position of the square in the grid.
      */
-    public NumberSquare(int neighbors, int row, int col) {
-        super(row, col);
-        this.neighbors = neighbors;
+    public NumberSquare(Grid grid, int row, int col) {
+        super(grid, row, col);
         this.numberColor = Color.BLUE; 
         setBackgroundColor(Color.LIGHT_GRAY); 
     }
@@ -31,7 +32,7 @@ public class NumberSquare extends Square {
      */
     @Override
     public int getNeighbors() {
-        return neighbors;
+        return grid.getNeighbors(row, col);
     }
 
     /**
@@ -97,6 +98,7 @@ public class NumberSquare extends Square {
             g2.setColor(getBackgroundColor());
             g2.fillRect(x + borderWidth, y + borderWidth, size - 2 * borderWidth, size - 2 * borderWidth);
 
+            int neighbors = getNeighbors();
             if (neighbors > 0) { 
                 g2.setColor(numberColor);
                 g2.setFont(new Font("Arial", Font.BOLD, size / 2)); 
@@ -0,0 +1,63 @@
+package minesweeper;
+
+/**
+ * The simplest {@link MoveStrategy}: reveals a random covered square that isn't flagged, and once every
+ * safe square is uncovered, flags the mines that are left. It gives a baseline win rate to compare
+ * smarter strategies against. The random numbers come from the game's seed, so a game always plays out
+ * the same way however the games are spread over threads.
+ */
+public class RandomStrategy implements MoveStrategy {
+    private long state;
+
+    @Override
+    public void newGame(GameEngine game, long seed) {
+        state = seed;
+    }
+
+    @Override
+    public void move(GameEngine game) {
+        int height = game.getHeight(), width = game.getWidth();
+        if (game.getNumSafeRemaining() == 0) {
+            for (int r = 0; r < height; r++) {
+                for (int c = 0; c < width; c++) {
+                    if (!game.isUncovered(r, c) && !game.isFlagged(r, c)) {
+                        game.toggleFlag(r, c);
+                        return;
+                    }
+                }
+            }
+            return;
+        }
+
+        // Guess a few times, which is almost always enough; on a nearly finished board scan instead
+        int squares = height * width;
+        for (int tries = 0; tries < 16; tries++) {
+            int i = (int) ((nextLong() >>> 1) % squares);
+            if (!game.isUncovered(i / width, i % width) && !game.isFlagged(i / width, i % width)) {
+                game.reveal(i / width, i % width);
+                return;
+            }
+        }
+        int start = (int) ((nextLong() >>> 1) % squares);
+        for (int k = 0; k < squares; k++) {
+            int i = (start + k) % squares;
+            if (!game.isUncovered(i / width, i % width) && !game.isFlagged(i / width, i % width)) {
+                game.reveal(i / width, i % width);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Steps the SplitMix64 generator. It is kept inline, rather than in a java.util.Random,
+     * so starting a new game doesn't allocate anything.
+     *
+     * @return The next random value.
+     */
+    private long nextLong() {
+        long z = state += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,259 @@
+package minesweeper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Plays back replay logs written by {@link ReplayWriter} on a {@link GameEngine} with no user interface,
+ * as fast as the engine allows, and reports how each game ended. The board is dealt again from the seed in
+ * the log, so checking a submitted game needs nothing but its log.
+ *
+ * The engine is reused from one log to the next while the board size stays the same, so replaying many
+ * logs in a row allocates almost nothing. A Replay is used by one thread at a time; give each thread its own.
+ *
+ * Run with: java -cp core/target/minesweeper-core-1.0-SNAPSHOT.jar minesweeper.Replay LOG... to check logs,
+ * or with --bench [--games N] [--board beginner|intermediate|expert|ROWSxCOLS:MINES] to time replaying
+ * generated games.
+ */
+public class Replay {
+    private GameEngine engine;
+    private byte[] log;
+    private int pos, end;
+
+    /**
+     * Plays back a log from a file.
+     *
+     * @param path The log
+     * @return How the game went.
+     * @throws IOException If the file can't be read or isn't a valid log.
+     */
+    public Result run(Path path) throws IOException {
+        return run(Files.readAllBytes(path));
+    }
+
+    /**
+     * Plays back a log.
+     *
+     * @param log The whole log, header and moves
+     * @return How the game went.
+     * @throws IOException If the log isn't valid: a bad header, a move off the board or a cut-off record.
+     */
+    public Result run(byte[] log) throws IOException {
+        this.log = log;
+        this.pos = 0;
+        this.end = log.length;
+        if (end < ReplayWriter.MAGIC.length + 1) {
+            throw new IOException("Not a replay log");
+        }
+        for (byte b : ReplayWriter.MAGIC) {
+            if (log[pos++] != b) {
+                throw new IOException("Not a replay log");
+            }
+        }
+        if (log[pos++] != ReplayWriter.VERSION) {
+            throw new IOException("Replay log version " + log[pos - 1] + " is not supported");
+        }
+        long height = readVarint(), width = readVarint(), mines = readVarint();
+        // Each is checked on its own first, so a huge value can't overflow the product back into range
+        if (height <= 0 || width <= 0 || mines < 0 || height > Integer.MAX_VALUE || width > Integer.MAX_VALUE
+                || height * width > Integer.MAX_VALUE || mines > height * width) {
+            throw new IOException("Replay log has a bad board: " + height + "x" + width + " with " + mines + " mines");
+        }
+        if (end - pos < 8) {
+            throw new IOException("Replay log is cut off");
+        }
+        long seed = 0;
+        for (int k = 0; k < 8; k++) {
+            seed |= (log[pos++] & 0xFFL) << 8 * k;
+        }
+        long options = readVarint();
+        boolean noGuess = (options & ReplayWriter.NO_GUESS) != 0;
+        if (noGuess && mines == height * width) {
+            throw new IOException("Replay log asks for a no-guess board with no safe square");
+        }
+
+        // A new engine is cleared with newGame too, so every log starts from the same empty board, whether
+        // or not the engine was reused
+        GameEngine game = engine;
+        if (game == null || game.getHeight() != height || game.getWidth() != width || game.getNumMines() != mines) {
+            game = engine = new GameEngine((int) height, (int) width, (int) mines, seed);
+        }
+        game.newGame(seed);
+        game.setNoGuess(noGuess);
+        game.setSafeNeighborhood(noGuess || (options & ReplayWriter.SAFE_NEIGHBORHOOD) != 0);
+
+        int row = 0, col = 0, moves = 0;
+        long millis = 0;
+        while (pos < end) {
+            long first = readVarint();
+            row += unzigzag(readVarint());
+            col += unzigzag(readVarint());
+            if (row < 0 || row >= height || col < 0 || col >= width) {
+                throw new IOException("Move " + (moves + 1) + " is off the board: " + row + ", " + col);
+            }
+            switch ((int) first & 3) {
+                case ReplayWriter.REVEAL: game.reveal(row, col); break;
+                case ReplayWriter.FLAG: game.toggleFlag(row, col); break;
+                case ReplayWriter.CHORD: game.chord(row, col); break;
+                default: throw new IOException("Move " + (moves + 1) + " has an unknown type");
+            }
+            millis += first >>> 2;
+            moves++;
+        }
+        this.log = null;
+        return new Result(seed, moves, millis, game.hasWon(), game.isMineUncovered());
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos == end) {
+                throw new IOException("Replay log is cut off");
+            }
+            byte b = log[pos++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Replay log has a bad number");
+    }
+
+    private static int unzigzag(long n) {
+        return (int) (n >>> 1) ^ -(int) (n & 1);
+    }
+
+    /**
+     * How a replayed game went.
+     */
+    public static class Result {
+        private final long seed;
+        private final int moves;
+        private final long millis;
+        private final boolean won, lost;
+
+        Result(long seed, int moves, long millis, boolean won, boolean lost) {
+            this.seed = seed;
+            this.moves = moves;
+            this.millis = millis;
+            this.won = won;
+            this.lost = lost;
+        }
+
+        /** @return The seed the board was dealt from. */
+        public long getSeed() {
+            return seed;
+        }
+
+        /** @return The number of moves in the log. */
+        public int getMoves() {
+            return moves;
+        }
+
+        /** @return The time from the first move to the last, in milliseconds. */
+        public long getMillis() {
+            return millis;
+        }
+
+        /** @return Whether the moves win the game. */
+        public boolean isWon() {
+            return won;
+        }
+
+        /** @return Whether the moves uncover a mine. */
+        public boolean isLost() {
+            return lost;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("seed %d: %s after %,d moves in %d.%03d s", seed,
+                    won ? "won" : lost ? "lost" : "unfinished", moves, millis / 1000, millis % 1000);
+        }
+    }
+
+    /**
+     * Writes the log of a game won by a player who knows where the mines are, clicking the squares in a
+     * random order a fraction of a second apart. Used for timing replays.
+     */
+    static byte[] winningLog(GameEngine game, long seed) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        game.newGame(seed);
+        SplittableRandom random = new SplittableRandom(seed);
+        int height = game.getHeight(), width = game.getWidth();
+        try (ReplayWriter writer = new ReplayWriter(bytes, game)) {
+            long millis = 0;
+            game.reveal(height / 2, width / 2);
+            writer.record(ReplayWriter.REVEAL, height / 2, width / 2, millis);
+            int[] order = new int[height * width];
+            for (int i = 0; i < order.length; i++) {
+                int j = random.nextInt(i + 1);
+                order[i] = order[j];
+                order[j] = i;
+            }
+            for (int i : order) {
+                int r = i / width, c = i % width;
+                millis += 150 + random.nextInt(850);
+                if (game.isMine(r, c)) {
+                    game.toggleFlag(r, c);
+                    writer.record(ReplayWriter.FLAG, r, c, millis);
+                } else if (!game.isUncovered(r, c)) {
+                    game.reveal(r, c);
+                    writer.record(ReplayWriter.REVEAL, r, c, millis);
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean bench = false;
+        int games = 100_000;
+        String board = "expert";
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--bench": bench = true; break;
+                case "--games": games = Integer.parseInt(args[++i]); break;
+                case "--board": board = args[++i]; break;
+                default: paths.add(Path.of(args[i]));
+            }
+        }
+
+        Replay replay = new Replay();
+        if (!bench) {
+            for (Path path : paths) {
+                System.out.println(path + ": " + replay.run(path));
+            }
+            return;
+        }
+
+        int[] size = BatchSimulator.parseBoard(board);
+        GameEngine game = new GameEngine(size[0], size[1], size[2]);
+        byte[][] logs = new byte[games][];
+        long bytes = 0, moves = 0;
+        for (int g = 0; g < games; g++) {
+            logs[g] = winningLog(game, g);
+            bytes += logs[g].length;
+        }
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            int won = 0;
+            moves = 0;
+            for (byte[] log : logs) {
+                Result result = replay.run(log);
+                moves += result.getMoves();
+                won += result.isWon() ? 1 : 0;
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%,d games, %,d moves in %.2f s: %,.0f moves/s, %,.0f games/s, %d won%n",
+                    games, moves, seconds, moves / seconds, games / seconds, won);
+        }
+        System.out.printf("%.2f bytes per move, header included%n", (double) bytes / moves);
+    }
+}
@@ -0,0 +1,143 @@
+package minesweeper;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Records the moves of one game to an append-only replay log, which {@link Replay} can play back.
+ *
+ * A log starts with a header: the magic bytes "MSRP", a version byte, then the rows, columns and mines as
+ * varints, the seed as 8 bytes (little-endian) and the options as a varint (1 safe neighborhood, 2 no guessing).
+ * That is everything needed to deal the same board again. After it come the moves, one record each, until the
+ * end of the log. A record is three varints:
+ * <pre>
+ * (milliseconds since the previous move) * 4 + op     op is REVEAL, FLAG or CHORD; the clock starts at the first move
+ * zigzag(row - previous row)
+ * zigzag(col - previous col)
+ * </pre>
+ * Varints hold 7 bits per byte, low bits first, with the top bit set on every byte but the last. Zigzag maps
+ * 0, -1, 1, -2, ... to 0, 1, 2, 3, ... so that small steps either way stay small. Players mostly click near
+ * their last move a second or so later, so a move usually takes 3 or 4 bytes.
+ *
+ * Records are gathered in a buffer and written out when it fills or on {@link #flush()}.
+ */
+public class ReplayWriter implements Closeable, Flushable {
+    static final byte[] MAGIC = { 'M', 'S', 'R', 'P' };
+    static final int VERSION = 1;
+
+    /** Move types. */
+    public static final int REVEAL = 0, FLAG = 1, CHORD = 2;
+
+    // Bits of the options field
+    static final int SAFE_NEIGHBORHOOD = 1, NO_GUESS = 2;
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[8192];
+    private int length;
+    private int lastRow, lastCol;
+    private long lastMillis = Long.MIN_VALUE; // no move yet
+
+    /**
+     * Starts a log of a game that hasn't had any moves yet, writing its header. The header holds the game's
+     * options, so they must not be changed while the game is being recorded.
+     *
+     * @param out  Where the log goes; closed by {@link #close()}
+     * @param game The game to record
+     * @throws IOException If the header can't be written.
+     */
+    public ReplayWriter(OutputStream out, GameEngine game) throws IOException {
+        this.out = out;
+        System.arraycopy(MAGIC, 0, buffer, 0, MAGIC.length);
+        length = MAGIC.length;
+        buffer[length++] = VERSION;
+        putVarint(game.getHeight());
+        putVarint(game.getWidth());
+        putVarint(game.getNumMines());
+        for (int k = 0; k < 8; k++) {
+            buffer[length++] = (byte) (game.getSeed() >>> 8 * k);
+        }
+        putVarint((game.isSafeNeighborhood() ? SAFE_NEIGHBORHOOD : 0) | (game.isNoGuess() ? NO_GUESS : 0));
+        flush();
+    }
+
+    /**
+     * Starts a log in a new file, replacing any file already there.
+     *
+     * @param path Where to write the log
+     * @param game The game to record, which hasn't had any moves yet
+     * @return The writer.
+     * @throws IOException If the file can't be written.
+     */
+    public static ReplayWriter create(Path path, GameEngine game) throws IOException {
+        return new ReplayWriter(Files.newOutputStream(path), game);
+    }
+
+    /**
+     * Records a move made now.
+     *
+     * @param op  REVEAL, FLAG or CHORD
+     * @param row Row index
+     * @param col Column index
+     * @throws IOException If a full buffer can't be written out.
+     */
+    public void record(int op, int row, int col) throws IOException {
+        record(op, row, col, System.nanoTime() / 1_000_000);
+    }
+
+    /**
+     * Records a move made at the given time. Times must not go backwards.
+     *
+     * @param op     REVEAL, FLAG or CHORD
+     * @param row    Row index
+     * @param col    Column index
+     * @param millis When the move was made, in milliseconds on any clock
+     * @throws IOException If a full buffer can't be written out.
+     */
+    public void record(int op, int row, int col, long millis) throws IOException {
+        if (length > buffer.length - 3 * 10) {
+            drain();
+        }
+        putVarint((lastMillis == Long.MIN_VALUE ? 0 : millis - lastMillis) << 2 | op);
+        putVarint(zigzag(row - lastRow));
+        putVarint(zigzag(col - lastCol));
+        lastMillis = millis;
+        lastRow = row;
+        lastCol = col;
+    }
+
+    /**
+     * Writes out the buffered records and flushes the stream.
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer, 0, length);
+        length = 0;
+    }
+
+    private void putVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[length++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+    }
+
+    private static long zigzag(int n) {
+        return (n << 1 ^ n >> 31) & 0xFFFFFFFFL;
+    }
+}
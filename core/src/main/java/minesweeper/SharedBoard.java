@@ -0,0 +1,399 @@
+package minesweeper;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A board that many players can play at once, from as many threads, for cooperative games on one large board.
+ *
+ * Squares are packed one byte each as in {@link GameEngine}, but every change to a square is a compare-and-set
+ * on its byte, through a {@link VarHandle}. A reveal claims a square by setting its uncovered bit only if
+ * the square is still covered and unflagged, and a flag is set only on a covered square, so every square is
+ * uncovered by exactly one move and a flag and a reveal can't both win. Flood fills in different parts of the
+ * board touch different bytes and never wait for each other; two fills that meet simply share out the squares
+ * between them. The running totals are {@link LongAdder}s, which spread their updates over cells of their own,
+ * so players don't contend on them either. Each thread has its own fill queue.
+ *
+ * The mines are dealt on the first reveal, with the same layout {@link GameEngine} would give for the same seed
+ * and square; flags before that are ignored. A mine uncovered by anyone ends the game for everyone. Totals read
+ * while moves are being made may be a move or so out; they are exact once the board is quiet.
+ */
+public final class SharedBoard implements Board {
+    private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(byte[].class);
+    private static final int UNCOVERED = GameEngine.UNCOVERED, FLAGGED = GameEngine.FLAGGED;
+    private static final int MINE = GameEngine.MINE, COUNT_MASK = GameEngine.COUNT_MASK;
+
+    private final byte[] cells;
+    private final int height, width, numMines;
+    private final long seed;
+    private volatile boolean started, mineUncovered;
+    private final LongAdder uncoveredSafe = new LongAdder(), flaggedSquares = new LongAdder(), flaggedMines = new LongAdder();
+    private final ThreadLocal<int[]> queues = ThreadLocal.withInitial(() -> new int[64]);
+    private final AtomicReference<int[]> dirty = new AtomicReference<>(); // first row, first column, last row, last column
+
+    /**
+     * Constructs a board with no mines yet; they are dealt on the first reveal.
+     *
+     * @param height   number of rows
+     * @param width    number of columns
+     * @param numMines number of mines
+     * @param seed     seed for placing the mines
+     */
+    public SharedBoard(int height, int width, int numMines, long seed) {
+        if (numMines < 0 || numMines >= (long) height * width) {
+            throw new IllegalArgumentException("Cannot place " + numMines + " mines on a " + height + "x" + width + " grid");
+        }
+        this.height = height;
+        this.width = width;
+        this.numMines = numMines;
+        this.seed = seed;
+        this.cells = new byte[height * width];
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getNumMines() {
+        return numMines;
+    }
+
+    @Override
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public int getNumFlaggedSquares() {
+        return (int) flaggedSquares.sum();
+    }
+
+    @Override
+    public int getNumSafeRemaining() {
+        return cells.length - numMines - (int) uncoveredSafe.sum();
+    }
+
+    @Override
+    public boolean isStarted() {
+        return started;
+    }
+
+    @Override
+    public boolean isMineUncovered() {
+        return mineUncovered;
+    }
+
+    @Override
+    public boolean hasWon() {
+        return !mineUncovered && uncoveredSafe.sum() == cells.length - numMines && flaggedMines.sum() == numMines;
+    }
+
+    @Override
+    public boolean isGameOver() {
+        return mineUncovered || hasWon();
+    }
+
+    @Override
+    public boolean isMine(int r, int c) {
+        return (cellAt(r * width + c) & MINE) != 0;
+    }
+
+    @Override
+    public boolean isFlagged(int r, int c) {
+        return (cellAt(r * width + c) & FLAGGED) != 0;
+    }
+
+    @Override
+    public boolean isUncovered(int r, int c) {
+        return (cellAt(r * width + c) & UNCOVERED) != 0;
+    }
+
+    @Override
+    public int getNeighbors(int r, int c) {
+        return cellAt(r * width + c) & COUNT_MASK;
+    }
+
+    @Override
+    public byte cellAt(int i) {
+        return (byte) CELLS.getOpaque(cells, i);
+    }
+
+    /**
+     * Reveals a square. The first reveal deals the mines, keeping this square safe; reveals made while that
+     * is going on wait for it.
+     */
+    @Override
+    public int reveal(int r, int c) {
+        if (!started) {
+            deal(r, c);
+        }
+        if (mineUncovered) {
+            return 0;
+        }
+        return uncoverSquare(r, c);
+    }
+
+    /**
+     * Flags or unflags a covered square. Ignored before the first reveal and once a mine has been uncovered.
+     */
+    @Override
+    public boolean toggleFlag(int r, int c) {
+        if (!started || mineUncovered) {
+            return false;
+        }
+        return changeFlag(r * width + c);
+    }
+
+    /**
+     * Flags or unflags a covered square. Unlike the other boards, this is ignored before the first reveal as
+     * {@link #toggleFlag} is: the deal writes the squares without compare-and-set, so nothing may touch them
+     * until it has finished.
+     */
+    @Override
+    public void flag(int r, int c) {
+        if (started) {
+            changeFlag(r * width + c);
+        }
+    }
+
+    @Override
+    public int uncoverSquare(int r, int c) {
+        int start = r * width + c;
+        int cell;
+        do {
+            cell = (byte) CELLS.getVolatile(cells, start);
+            if ((cell & (UNCOVERED | FLAGGED)) != 0) {
+                return 0;
+            }
+        } while (!CELLS.compareAndSet(cells, start, (byte) cell, (byte) (cell | UNCOVERED)));
+
+        if ((cell & MINE) != 0) {
+            explode();
+            return -1;
+        }
+        int[] queue = queues.get();
+        queue[0] = start;
+        return fill(queue, 1, r, c, r, c);
+    }
+
+    @Override
+    public int chord(int r, int c) {
+        int center = cellAt(r * width + c);
+        if (!started || mineUncovered || (center & (UNCOVERED | MINE)) != UNCOVERED || (center & COUNT_MASK) == 0) {
+            return 0;
+        }
+        int rowStart = Math.max(0, r - 1), rowEnd = Math.min(height - 1, r + 1);
+        int colStart = Math.max(0, c - 1), colEnd = Math.min(width - 1, c + 1);
+        int flags = 0;
+        boolean hitsMine = false;
+        for (int nr = rowStart; nr <= rowEnd; nr++) {
+            for (int n = nr * width + colStart, last = nr * width + colEnd; n <= last; n++) {
+                int cell = cellAt(n);
+                if ((cell & FLAGGED) != 0) {
+                    flags++;
+                } else if ((cell & (UNCOVERED | MINE)) == MINE) {
+                    hitsMine = true;
+                }
+            }
+        }
+        if (flags != (center & COUNT_MASK)) {
+            return 0;
+        }
+        if (hitsMine) {
+            explode();
+            return -1;
+        }
+
+        int[] queue = queues.get();
+        int tail = 0;
+        for (int nr = rowStart; nr <= rowEnd; nr++) {
+            for (int n = nr * width + colStart, last = nr * width + colEnd; n <= last; n++) {
+                int cell = claim(n);
+                if (cell < 0) continue;
+                if ((cell & MINE) != 0) {
+                    // Another thread took a flag off this mine after the check; count what was already claimed
+                    uncoveredSafe.add(tail);
+                    explode();
+                    return -1;
+                }
+                queue[tail++] = n;
+            }
+        }
+        return fill(queue, tail, rowStart, colStart, rowEnd, colEnd);
+    }
+
+    /**
+     * Returns the squares uncovered by the calling thread's last move; other threads' moves don't touch it.
+     */
+    @Override
+    public int[] getLastRevealed() {
+        return queues.get();
+    }
+
+    @Override
+    public boolean takeDirtyBounds(int[] bounds) {
+        int[] block = dirty.getAndSet(null);
+        if (block == null) {
+            return false;
+        }
+        System.arraycopy(block, 0, bounds, 0, 4);
+        return true;
+    }
+
+    /**
+     * Deals the mines for a first reveal at the given square, unless another thread got there first.
+     * The squares are dealt in place with {@link GameEngine}'s own sampling and neighbor counting, so the
+     * layout matches that engine's exactly. Flags are refused until the deal is over, so every square is still
+     * clear.
+     */
+    private synchronized void deal(int r, int c) {
+        if (started) {
+            return;
+        }
+        byte[] cells = this.cells;
+        int[] safe = GameEngine.safeSquares(height, width, numMines, r, c, false);
+        GameEngine.sampleMines(seed, cells.length, numMines, safe, i -> {
+            if ((cells[i] & MINE) != 0) {
+                return false;
+            }
+            cells[i] |= MINE;
+            return true;
+        });
+        GameEngine.countNeighbors(cells, width);
+        markDirty(new int[] { 0, 0, height - 1, width - 1 });
+        started = true; // publishes the cells to every thread that sees it set
+    }
+
+    /**
+     * Uncovers a square if it is still covered and unflagged.
+     *
+     * @return The cell as it was before, or -1 if it was already uncovered or is flagged.
+     */
+    private int claim(int i) {
+        while (true) {
+            int cell = (byte) CELLS.getVolatile(cells, i);
+            if ((cell & (UNCOVERED | FLAGGED)) != 0) {
+                return -1;
+            }
+            if (CELLS.compareAndSet(cells, i, (byte) cell, (byte) (cell | UNCOVERED))) {
+                return cell;
+            }
+        }
+    }
+
+    /**
+     * Flips the flag on a covered square.
+     *
+     * @return False if the square is uncovered.
+     */
+    private boolean changeFlag(int i) {
+        int cell;
+        do {
+            cell = (byte) CELLS.getVolatile(cells, i);
+            if ((cell & UNCOVERED) != 0) {
+                return false;
+            }
+        } while (!CELLS.compareAndSet(cells, i, (byte) cell, (byte) (cell ^ FLAGGED)));
+
+        int delta = (cell & FLAGGED) != 0 ? -1 : 1;
+        flaggedSquares.add(delta);
+        if ((cell & MINE) != 0) {
+            flaggedMines.add(delta);
+        }
+        int r = i / width, c = i % width;
+        markDirty(new int[] { r, c, r, c });
+        return true;
+    }
+
+    /**
+     * Runs the flood fill from the squares in the queue, which this thread has already uncovered. A square is
+     * only queued by the thread whose compare-and-set uncovered it, so each is counted once however fills overlap.
+     *
+     * @return The number of squares this fill uncovered.
+     */
+    private int fill(int[] queue, int tail, int top, int left, int bottom, int right) {
+        for (int head = 0; head < tail; head++) {
+            int i = queue[head];
+            if ((cellAt(i) & COUNT_MASK) != 0) {
+                continue;
+            }
+            int row = i / width;
+            int col = i - row * width;
+            int rowStart = Math.max(0, row - 1), rowEnd = Math.min(height - 1, row + 1);
+            int colStart = Math.max(0, col - 1), colEnd = Math.min(width - 1, col + 1);
+            if (rowStart < top) top = rowStart;
+            if (colStart < left) left = colStart;
+            if (rowEnd > bottom) bottom = rowEnd;
+            if (colEnd > right) right = colEnd;
+            if (tail + 8 > queue.length) {
+                queue = Arrays.copyOf(queue, (int) Math.min((long) queue.length * 2, cells.length));
+                queues.set(queue);
+            }
+            for (int nr = rowStart; nr <= rowEnd; nr++) {
+                for (int n = nr * width + colStart, last = nr * width + colEnd; n <= last; n++) {
+                    // A square next to an empty square can't be a mine
+                    if (claim(n) >= 0) {
+                        queue[tail++] = n;
+                    }
+                }
+            }
+        }
+        uncoveredSafe.add(tail);
+        markDirty(new int[] { top, left, bottom, right });
+        return tail;
+    }
+
+    /**
+     * Uncovers every covered, unflagged square after a mine has been hit. Squares a fill is still working
+     * through are claimed by whichever thread gets to them first.
+     */
+    private void explode() {
+        mineUncovered = true;
+        int uncovered = 0;
+        for (int i = 0; i < cells.length; i++) {
+            int cell = claim(i);
+            if (cell >= 0 && (cell & MINE) == 0) {
+                uncovered++;
+            }
+        }
+        uncoveredSafe.add(uncovered);
+        markDirty(new int[] { 0, 0, height - 1, width - 1 });
+    }
+
+    private void markDirty(int[] block) {
+        dirty.accumulateAndGet(block, (a, b) -> a == null ? b : new int[] {
+                Math.min(a[0], b[0]), Math.min(a[1], b[1]), Math.max(a[2], b[2]), Math.max(a[3], b[3]) });
+    }
+
+    /**
+     * Recounts the uncovered safe squares and the flags by scanning the whole board, and fails if the totals
+     * have drifted from them. Only meaningful while no moves are being made.
+     *
+     * @return True if the totals are right; otherwise an AssertionError is thrown.
+     */
+    boolean countersMatchBoard() {
+        long safe = 0, flagged = 0, flaggedOnMines = 0;
+        for (int i = 0; i < cells.length; i++) {
+            int cell = cellAt(i);
+            if ((cell & (MINE | UNCOVERED)) == UNCOVERED) safe++;
+            if ((cell & FLAGGED) != 0) flagged++;
+            if ((cell & (MINE | FLAGGED)) == (MINE | FLAGGED)) flaggedOnMines++;
+        }
+        if (safe != uncoveredSafe.sum() || flagged != flaggedSquares.sum() || flaggedOnMines != flaggedMines.sum()) {
+            throw new AssertionError("Shared board totals drifted: uncovered safe " + uncoveredSafe.sum() + " vs " + safe
+                    + ", flagged " + flaggedSquares.sum() + " vs " + flagged
+                    + ", flagged mines " + flaggedMines.sum() + " vs " + flaggedOnMines);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,534 @@
+package minesweeper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Works out which covered squares are certainly safe and which are certainly mines from the numbers
+ * uncovered so far, the way a careful player would. It never looks at the hidden mine layout, and it
+ * ignores the player's flags, which may be wrong.
+ *
+ * Three rules are tried in turn, cheapest first:
+ * <ul>
+ *   <li>Single square: a number whose known mines already match it makes its other covered neighbors safe,
+ *       and a number with exactly as many unknown neighbors as missing mines makes them all mines.</li>
+ *   <li>Subset: two nearby numbers whose unknown neighbors overlap, where one set of mines is forced into
+ *       the part only one of them sees (for example a 1 whose squares are all shared by a neighboring 1).</li>
+ *   <li>Enumeration: every consistent placement of mines over a connected group of frontier squares
+ *       (covered squares next to a number) is counted, and squares that are safe, or a mine, in all of
+ *       them are known.</li>
+ * </ul>
+ *
+ * The solver keeps its state between moves. It must be told which squares each move uncovered, with
+ * {@link #update(int[], int)} (or {@link #sync()} after moves it didn't see), and then only the numbers
+ * around those squares are examined again. Enumeration only runs when the simpler rules are stuck, and
+ * skips groups that haven't changed since it last found nothing in them.
+ */
+public class Solver {
+    // Bits of the solver's own state for each square
+    private static final int SAFE = 0x01;     // known to be safe
+    private static final int MINE = 0x02;     // known to be a mine
+    private static final int SEEN = 0x04;     // uncovered, and taken into account
+    private static final int QUEUED = 0x08;   // number waiting in the work list
+    private static final int VISITED = 0x10;  // already placed in a group during enumeration
+    private static final int CHANGED = 0x20;  // number changed since its group was last enumerated
+
+    /** Groups with more unknown squares than this are not enumerated. */
+    private static final int MAX_GROUP_SIZE = 160;
+    /** Enumeration of a group gives up after this many steps, leaving its squares unknown. */
+    private static final long MAX_STEPS = 1 << 20;
+
+    private final GameEngine game;
+    private final int height, width;
+    private final byte[] state;
+    private int knownMines, pendingSafe;
+
+    private int[] work = new int[64];
+    private int workSize;
+    private int[] safe = new int[64];
+    private int safeSize;
+    private int[] frontier = new int[64];
+    private int frontierSize;
+
+    // Scratch space for the neighbor lists of two numbers
+    private final int[] unknownsA = new int[8], unknownsB = new int[8];
+    private int remaining;
+
+    // Scratch space for collecting groups, grown as needed and reused
+    private int[] groupCells = new int[64], groupNumbers = new int[64], visited = new int[64];
+    private int groupCellCount, groupNumberCount, visitedCount;
+    private final FrontierGroup group = new FrontierGroup();
+
+    /**
+     * Constructs a solver for a game, which must not have been played yet, or must be followed by {@link #sync()}.
+     *
+     * @param game The game to solve
+     */
+    public Solver(GameEngine game) {
+        this.game = game;
+        this.height = game.getHeight();
+        this.width = game.getWidth();
+        this.state = new byte[height * width];
+    }
+
+    /** @return The game this solver works on. */
+    public GameEngine getGame() {
+        return game;
+    }
+
+    /**
+     * Forgets everything, for a new game on the same engine. Reuses the solver's memory.
+     */
+    public void reset() {
+        Arrays.fill(state, (byte) 0);
+        knownMines = pendingSafe = 0;
+        workSize = safeSize = frontierSize = 0;
+    }
+
+    /**
+     * Takes newly uncovered squares into account, typically the ones left in
+     * {@link GameEngine#getLastRevealed()} by a move.
+     *
+     * @param squares Indexes of the squares, row * width + col
+     * @param count   Number of entries of squares to use
+     */
+    public void update(int[] squares, int count) {
+        for (int k = 0; k < count; k++) {
+            seen(squares[k]);
+        }
+    }
+
+    /**
+     * Takes every uncovered square into account by scanning the whole board, for when moves were made
+     * without calling {@link #update(int[], int)}.
+     */
+    public void sync() {
+        for (int i = 0; i < state.length; i++) {
+            if ((game.cellAt(i) & GameEngine.UNCOVERED) != 0) {
+                seen(i);
+            }
+        }
+    }
+
+    /**
+     * Finds a covered square that is certainly safe, running the rules as far as needed.
+     * The same square is returned until it is uncovered and the solver is told about it.
+     *
+     * @return The index (row * width + col) of a safe covered square, or -1 if there is none without guessing.
+     */
+    public int nextSafe() {
+        while (true) {
+            while (safeSize > 0) {
+                int i = safe[safeSize - 1];
+                if ((game.cellAt(i) & GameEngine.UNCOVERED) == 0) {
+                    return i;
+                }
+                safeSize--;
+            }
+            if (workSize > 0) {
+                propagate();
+            } else if (!enumerate()) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * @param r Row index
+     * @param c Column index
+     * @return Whether the solver has proven the square is a mine.
+     */
+    public boolean isKnownMine(int r, int c) {
+        return (state[r * width + c] & MINE) != 0;
+    }
+
+    /**
+     * @param r Row index
+     * @param c Column index
+     * @return Whether the solver has proven the square is safe, or it is uncovered.
+     */
+    public boolean isKnownSafe(int r, int c) {
+        return (state[r * width + c] & SAFE) != 0 || (game.cellAt(r * width + c) & GameEngine.UNCOVERED) != 0;
+    }
+
+    /**
+     * @param i Square index, row * width + col
+     * @return Whether the square is covered and the solver knows nothing about it.
+     */
+    boolean isUnknown(int i) {
+        return (game.cellAt(i) & GameEngine.UNCOVERED) == 0 && (state[i] & (SAFE | MINE)) == 0;
+    }
+
+    /** @return The number of mines the solver has proven. */
+    public int getNumKnownMines() {
+        return knownMines;
+    }
+
+    /** @return The number of covered squares the solver knows nothing about. */
+    public int getNumUnknown() {
+        return game.getNumSafeRemaining() + game.getNumMines() - pendingSafe - knownMines;
+    }
+
+    /**
+     * Takes one uncovered square into account: it is a new number to examine, and the numbers around it
+     * have lost an unknown neighbor.
+     */
+    private void seen(int i) {
+        int s = state[i];
+        if ((s & SEEN) != 0) {
+            return;
+        }
+        if ((s & SAFE) != 0) {
+            pendingSafe--;
+        }
+        state[i] = (byte) (s | SEEN | SAFE);
+        if (isNumber(i)) {
+            queue(i);
+            if (frontierSize == frontier.length) {
+                frontier = Arrays.copyOf(frontier, frontierSize * 2);
+            }
+            frontier[frontierSize++] = i;
+        }
+        queueNumbersAround(i);
+    }
+
+    /**
+     * @return Whether the square is an uncovered number, with at least one mine next to it.
+     */
+    private boolean isNumber(int i) {
+        int cell = game.cellAt(i);
+        return (cell & (GameEngine.UNCOVERED | GameEngine.MINE)) == GameEngine.UNCOVERED
+                && (cell & GameEngine.COUNT_MASK) != 0;
+    }
+
+    private void queue(int i) {
+        int s = state[i];
+        if ((s & QUEUED) == 0) {
+            state[i] = (byte) (s | QUEUED | CHANGED);
+            if (workSize == work.length) {
+                work = Arrays.copyOf(work, workSize * 2);
+            }
+            work[workSize++] = i;
+        }
+    }
+
+    private void queueNumbersAround(int i) {
+        int r = i / width, c = i % width;
+        for (int nr = Math.max(0, r - 1); nr <= Math.min(height - 1, r + 1); nr++) {
+            for (int nc = Math.max(0, c - 1); nc <= Math.min(width - 1, c + 1); nc++) {
+                int j = nr * width + nc;
+                if (j != i && isNumber(j)) {
+                    queue(j);
+                }
+            }
+        }
+    }
+
+    private void markSafe(int i) {
+        if ((state[i] & (SAFE | MINE)) != 0) {
+            return;
+        }
+        state[i] |= SAFE;
+        pendingSafe++;
+        if (safeSize == safe.length) {
+            safe = Arrays.copyOf(safe, safeSize * 2);
+        }
+        safe[safeSize++] = i;
+        queueNumbersAround(i);
+    }
+
+    private void markMine(int i) {
+        if ((state[i] & (SAFE | MINE)) != 0) {
+            return;
+        }
+        state[i] |= MINE;
+        knownMines++;
+        queueNumbersAround(i);
+    }
+
+    /**
+     * Lists the unknown neighbors of a number, and sets {@link #remaining} to the number of mines among them.
+     *
+     * @param i   Index of an uncovered number
+     * @param out Receives the indexes of its unknown neighbors
+     * @return The number of unknown neighbors.
+     */
+    private int unknowns(int i, int[] out) {
+        int r = i / width, c = i % width, n = 0;
+        int mines = game.cellAt(i) & GameEngine.COUNT_MASK;
+        for (int nr = Math.max(0, r - 1); nr <= Math.min(height - 1, r + 1); nr++) {
+            for (int nc = Math.max(0, c - 1); nc <= Math.min(width - 1, c + 1); nc++) {
+                int j = nr * width + nc;
+                if ((state[j] & MINE) != 0) {
+                    mines--;
+                } else if (isUnknown(j)) {
+                    out[n++] = j;
+                }
+            }
+        }
+        remaining = mines;
+        return n;
+    }
+
+    /**
+     * Applies the single-square and subset rules to the numbers in the work list until it is empty.
+     */
+    private void propagate() {
+        int[] a = unknownsA, b = unknownsB;
+        while (workSize > 0) {
+            int i = work[--workSize];
+            state[i] &= ~QUEUED;
+            int n = unknowns(i, a), rem = remaining;
+            if (n == 0) {
+                continue;
+            }
+            if (rem == 0 || rem == n) {
+                for (int k = 0; k < n; k++) {
+                    if (rem == 0) markSafe(a[k]); else markMine(a[k]);
+                }
+                continue;
+            }
+
+            // Compare with every number close enough to share an unknown square
+            int r = i / width, c = i % width;
+            search:
+            for (int nr = Math.max(0, r - 2); nr <= Math.min(height - 1, r + 2); nr++) {
+                for (int nc = Math.max(0, c - 2); nc <= Math.min(width - 1, c + 2); nc++) {
+                    int j = nr * width + nc;
+                    if (j == i || !isNumber(j)) {
+                        continue;
+                    }
+                    int m = unknowns(j, b), remJ = remaining;
+                    int shared = 0;
+                    for (int x = 0; x < n; x++) {
+                        for (int y = 0; y < m; y++) {
+                            if (a[x] == b[y]) shared++;
+                        }
+                    }
+                    if (shared == 0) {
+                        continue;
+                    }
+                    int onlyI = n - shared, onlyJ = m - shared;
+                    if (onlyJ > 0 && remJ - rem == onlyJ) {
+                        // j needs a mine on every square i doesn't see, so i's own squares are safe
+                        apply(b, m, a, n, true);
+                        apply(a, n, b, m, false);
+                    } else if (onlyI > 0 && rem - remJ == onlyI) {
+                        apply(a, n, b, m, true);
+                        apply(b, m, a, n, false);
+                    } else if (onlyI == 0 && onlyJ > 0 && rem == remJ) {
+                        // i's squares hold all of j's mines
+                        apply(b, m, a, n, false);
+                    } else if (onlyJ == 0 && onlyI > 0 && rem == remJ) {
+                        apply(a, n, b, m, false);
+                    } else {
+                        continue;
+                    }
+                    queue(i);
+                    break search;
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks the squares of one list that are not in another as mines or as safe.
+     */
+    private void apply(int[] from, int n, int[] except, int m, boolean mines) {
+        outer:
+        for (int x = 0; x < n; x++) {
+            for (int y = 0; y < m; y++) {
+                if (from[x] == except[y]) continue outer;
+            }
+            if (mines) markMine(from[x]); else markSafe(from[x]);
+        }
+    }
+
+    /**
+     * Splits the frontier into groups of unknown squares linked by the numbers around them, and enumerates
+     * the mine placements of every group that has changed.
+     *
+     * @return Whether any square became known.
+     */
+    private boolean enumerate() {
+        int before = knownMines + pendingSafe;
+        int minesLeft = game.getNumMines() - knownMines;
+        int unknownTotal = getNumUnknown();
+        if (unknownTotal == 0) {
+            return false;
+        }
+        if (minesLeft == 0 || minesLeft == unknownTotal) {
+            for (int i = 0; i < state.length; i++) {
+                if (isUnknown(i)) {
+                    if (minesLeft == 0) markSafe(i); else markMine(i);
+                }
+            }
+            return true;
+        }
+
+        visitedCount = 0;
+        for (int f = 0; f < frontierSize; f++) {
+            int i = frontier[f];
+            if (unknowns(i, unknownsA) == 0) {
+                // Finished numbers never get unknown neighbors again
+                frontier[f--] = frontier[--frontierSize];
+                continue;
+            }
+            if ((state[i] & VISITED) != 0) {
+                continue;
+            }
+            collectGroup(i);
+            int size = groupCellCount;
+            int minMines = Math.max(0, minesLeft - (unknownTotal - size));
+            int maxMines = Math.min(size, minesLeft);
+            if (size <= MAX_GROUP_SIZE && (groupChanged() || minMines > 0 || maxMines < size)) {
+                fillGroup(group);
+                if (group.enumerate(maxMines, MAX_STEPS)) {
+                    markCertain(minMines, maxMines);
+                }
+            }
+        }
+        clearVisited();
+        return knownMines + pendingSafe != before;
+    }
+
+    /**
+     * Marks the squares of the enumerated group that are safe, or a mine, in every placement
+     * with between minMines and maxMines mines.
+     */
+    private void markCertain(int minMines, int maxMines) {
+        double total = 0;
+        for (int m = minMines; m <= maxMines; m++) {
+            total += group.solutions(m);
+        }
+        if (total == 0) {
+            return;
+        }
+        for (int k = 0; k < group.size(); k++) {
+            int cls = group.classOf(k);
+            double mines = 0;
+            for (int m = minMines; m <= maxMines; m++) {
+                mines += group.classMines(m, cls);
+            }
+            if (mines == 0) {
+                markSafe(group.cellAt(k));
+            } else if (mines == total * group.classSize(cls)) {
+                markMine(group.cellAt(k));
+            }
+        }
+    }
+
+    /**
+     * Runs the single-square and subset rules until they find nothing more, without enumerating.
+     */
+    void propagateAll() {
+        propagate();
+    }
+
+    /**
+     * Splits the current frontier into groups, without enumerating them. Groups too large to enumerate
+     * are left out; their squares are counted by {@link #getNumUnknown()} like any other unknown square.
+     *
+     * @return A new group for every connected part of the frontier.
+     */
+    List<FrontierGroup> groups() {
+        List<FrontierGroup> groups = new ArrayList<>();
+        visitedCount = 0;
+        for (int f = 0; f < frontierSize; f++) {
+            int i = frontier[f];
+            if (unknowns(i, unknownsA) == 0) {
+                frontier[f--] = frontier[--frontierSize];
+                continue;
+            }
+            if ((state[i] & VISITED) == 0) {
+                collectGroup(i);
+                if (groupCellCount <= MAX_GROUP_SIZE) {
+                    FrontierGroup g = new FrontierGroup();
+                    fillGroup(g);
+                    groups.add(g);
+                }
+            }
+        }
+        clearVisited();
+        return groups;
+    }
+
+    /** @return Whether any number in the current group has changed since the group was last enumerated. */
+    private boolean groupChanged() {
+        boolean changed = false;
+        for (int k = 0; k < groupNumberCount; k++) {
+            int i = groupNumbers[k];
+            if ((state[i] & CHANGED) != 0) {
+                changed = true;
+                state[i] &= ~CHANGED;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Collects the unknown squares and numbers connected to a number, breadth first.
+     *
+     * @param start An unvisited number with unknown neighbors
+     */
+    private void collectGroup(int start) {
+        groupCellCount = groupNumberCount = 0;
+        visit(start);
+        groupNumbers = grow(groupNumbers, 1);
+        groupNumbers[groupNumberCount++] = start;
+        for (int head = 0; head < groupNumberCount; head++) {
+            int n = unknowns(groupNumbers[head], unknownsA);
+            for (int k = 0; k < n; k++) {
+                int u = unknownsA[k];
+                if ((state[u] & VISITED) != 0) {
+                    continue;
+                }
+                visit(u);
+                groupCells = grow(groupCells, groupCellCount + 1);
+                groupCells[groupCellCount++] = u;
+                int r = u / width, c = u % width;
+                for (int nr = Math.max(0, r - 1); nr <= Math.min(height - 1, r + 1); nr++) {
+                    for (int nc = Math.max(0, c - 1); nc <= Math.min(width - 1, c + 1); nc++) {
+                        int j = nr * width + nc;
+                        if ((state[j] & VISITED) == 0 && isNumber(j)) {
+                            visit(j);
+                            groupNumbers = grow(groupNumbers, groupNumberCount + 1);
+                            groupNumbers[groupNumberCount++] = j;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the squares and numbers just collected into a group.
+     */
+    private void fillGroup(FrontierGroup g) {
+        g.clear();
+        for (int k = 0; k < groupCellCount; k++) {
+            g.addCell(groupCells[k]);
+        }
+        for (int k = 0; k < groupNumberCount; k++) {
+            int n = unknowns(groupNumbers[k], unknownsA);
+            g.addNumber(groupNumbers[k], remaining, unknownsA, n);
+        }
+    }
+
+    private void visit(int i) {
+        state[i] |= VISITED;
+        visited = grow(visited, visitedCount + 1);
+        visited[visitedCount++] = i;
+    }
+
+    private void clearVisited() {
+        for (int k = 0; k < visitedCount; k++) {
+            state[visited[k]] &= ~VISITED;
+        }
+    }
+
+    private static int[] grow(int[] array, int length) {
+        return array.length >= length ? array : Arrays.copyOf(array, Math.max(length, array.length * 2));
+    }
+}
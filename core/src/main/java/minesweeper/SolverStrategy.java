@@ -0,0 +1,85 @@
+package minesweeper;
+
+/**
+ * A {@link MoveStrategy} that plays like a careful player: it opens the middle of the board, then only
+ * reveals squares the {@link Solver} has proven safe, and guesses a random unknown square when there
+ * are none. Once every safe square is uncovered it flags the mines that are left.
+ */
+public class SolverStrategy implements MoveStrategy {
+    private Solver solver;
+    private long state;
+    private int flagCursor;
+
+    @Override
+    public void newGame(GameEngine game, long seed) {
+        if (solver == null || solver.getGame() != game) {
+            solver = new Solver(game);
+        } else {
+            solver.reset();
+        }
+        state = seed;
+        flagCursor = 0;
+    }
+
+    @Override
+    public void move(GameEngine game) {
+        int width = game.getWidth(), squares = game.getHeight() * width;
+        if (game.getNumSafeRemaining() == 0) {
+            // Everything left is a mine; the cursor only moves forward, so flagging them all is one pass
+            for (; flagCursor < squares; flagCursor++) {
+                int r = flagCursor / width, c = flagCursor % width;
+                if (!game.isUncovered(r, c) && !game.isFlagged(r, c)) {
+                    game.toggleFlag(r, c);
+                    return;
+                }
+            }
+            return;
+        }
+
+        int i;
+        if (!game.isStarted()) {
+            i = game.getHeight() / 2 * width + width / 2;
+        } else if ((i = solver.nextSafe()) < 0) {
+            i = guess(squares);
+        }
+        int uncovered = game.reveal(i / width, i % width);
+        if (uncovered > 0) {
+            solver.update(game.getLastRevealed(), uncovered);
+        }
+    }
+
+    /** @return The solver, which knows what this strategy has found out about the current game. */
+    public Solver getSolver() {
+        return solver;
+    }
+
+    /**
+     * Picks a random square the solver knows nothing about.
+     */
+    private int guess(int squares) {
+        for (int tries = 0; tries < 16; tries++) {
+            int i = (int) ((nextLong() >>> 1) % squares);
+            if (solver.isUnknown(i)) {
+                return i;
+            }
+        }
+        int start = (int) ((nextLong() >>> 1) % squares);
+        for (int k = 0; k < squares; k++) {
+            int i = (start + k) % squares;
+            if (solver.isUnknown(i)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("No square left to guess");
+    }
+
+    /**
+     * Steps the SplitMix64 generator, as in {@link RandomStrategy}.
+     */
+    private long nextLong() {
+        long z = state += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
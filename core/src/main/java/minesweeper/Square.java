@@ -1,30 +1,32 @@
+package minesweeper;
+
 import java.awt.*;
 
 /**
  * An Abstract class representing a square in Minesweeper.
  * The squares may be uncovered, flagged, or covered, and each square has a position (row, column) and various colors 
  * that are associated with weather its covered, uncovered, or flagged.
+ * A Square is a lightweight view onto one cell of a {@link Grid}: the covered/flagged state lives in the grid's
+ * packed cell array, so views can be created on demand and thrown away (or reused) without losing anything.
  */
 public abstract class Square {
+    protected Grid grid;
     protected int row, col; 
-    protected boolean uncovered, flagged; 
     private Color backgroundColor, coveredColor, borderColor, flagColor; 
 
     /**
-     * Constructs a Square object with a specified position (row, col) in the grid.
-     * as well as initializes the square to be covered and not flagged. 
+     * Constructs a Square view onto the cell at a specified position (row, col) in the grid.
      * Also sets default colors.
      *
+     * @param grid The grid that holds the state of this square.
      * @param row The row position of the square in the grid.
      * @param col The column position of the square in the grid.
      */
-    public Square(int row, int col) {
+    public Square(Grid grid, int row, int col) {
+        this.grid = grid;
         this.row = row;
         this.col = col;
-        this.uncovered = false;
-        this.flagged = false;
 
-        
         this.backgroundColor = Color.LIGHT_GRAY;
         this.coveredColor = Color.GREEN;
         this.borderColor = Color.WHITE;
@@ -47,19 +49,30 @@ public abstract class Square {
      */
     public int getCol() { return col; }
 
+    /**
+     * Points this view at a different cell of the same grid, so one view can be reused while drawing.
+     *
+     * @param row The new row position.
+     * @param col The new column position.
+     */
+    void moveTo(int row, int col) {
+        this.row = row;
+        this.col = col;
+    }
+
     /**
      * this is used to return whether the square is uncovered.
      *
      * @return true if the square is uncovered, false if it is covered.
      */
-    public boolean isUncovered() { return uncovered; }
+    public boolean isUncovered() { return grid.isUncovered(row, col); }
 
     /**
      * this returns whether the square is flagged.
      *
      * @return true if the square is flagged, false otherwise.
      */
-    public boolean isFlagged() { return flagged; }
+    public boolean isFlagged() { return grid.isFlagged(row, col); }
 
     /**
      * Gets the background color of the square this is used when uncovered.
@@ -121,17 +134,15 @@ public abstract class Square {
      * Toggles the flag status of the square. If it is flagged, it will be unflagged, and vice versa.
      */
     public void toggleFlag() {
-        flagged = !flagged;
+        grid.flag(row, col);
     }
 
     /**
-     * Uncovers the square if it is not flagged.
-     * If the square is flagged, it will remain covered.
+     * Uncovers the square if it is not flagged, by the rules of whatever board the grid plays: a mine ends the
+     * game, and an empty square uncovers its neighbors. If the square is flagged, it will remain covered.
      */
     public void uncover() {
-        if (!flagged) {
-            uncovered = true;
-        }
+        grid.uncoverSquare(row, col);
     }
 
     
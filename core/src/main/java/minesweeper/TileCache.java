@@ -0,0 +1,221 @@
+package minesweeper;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Holds a pre-rendered picture of every way a square can look, laid side by side in one image (an atlas),
+ * so the grid can paint a square by copying its tile instead of drawing shapes and text every frame.
+ * The tiles are rendered by the normal {@link Square#draw} code, and are rendered again
+ * whenever the square size or the colors change.
+ */
+class TileCache {
+    // Tile positions in the atlas; uncovered number squares use OPEN + the number (0-8)
+    static final int COVERED = 0;
+    static final int FLAGGED = 1;
+    static final int EXPLODED = 2;
+    static final int OPEN = 3;
+    static final int TILE_COUNT = OPEN + 9;
+
+    private final TileMine mineTile;
+    private final TileNumber numberTile;
+    private BufferedImage atlas;
+    private int size;
+    private int[] palette;
+    private int[] tilePixels;
+    private int tilePixelsSize;
+
+    /**
+     * Constructs an empty cache using the default square colors. Tiles are rendered on first use.
+     */
+    TileCache() {
+        mineTile = new TileMine();
+        numberTile = new TileNumber();
+    }
+
+    /**
+     * Changes the colors used for squares, and throws away the tiles drawn with the old ones.
+     *
+     * @param covered    The color of a covered square.
+     * @param background The color of an uncovered square.
+     * @param border     The color of the border around each square.
+     * @param flag       The color of a flag.
+     */
+    void setColors(Color covered, Color background, Color border, Color flag) {
+        for (Square s : new Square[] { mineTile, numberTile }) {
+            s.setCoveredColor(covered);
+            s.setBorderColor(border);
+            s.setFlagColor(flag);
+        }
+        numberTile.setBackgroundColor(background);
+        atlas = null;
+        palette = null;
+        tilePixels = null;
+    }
+
+    /**
+     * Returns the atlas for the given square size, rendering it first if the size has changed.
+     * Tile n is the square at x = n * size.
+     *
+     * @param g2   The graphics context the tiles will be drawn to, used to pick a compatible image format.
+     * @param size The width and height of a square in pixels.
+     * @return The atlas image.
+     */
+    BufferedImage getAtlas(Graphics2D g2, int size) {
+        if (atlas == null || this.size != size) {
+            render(g2.getDeviceConfiguration(), size);
+        }
+        return atlas;
+    }
+
+    /**
+     * Returns the tiles as RGB pixels for {@link RasterRenderer}, rendering them first if the size has changed.
+     * Each tile is stored whole, one row after another, so that a row of a tile is {@code size} ints in a row:
+     * row y of tile n starts at {@code (n * size + y) * size}.
+     *
+     * @param size The width and height of a square in pixels.
+     * @return The pixels of every tile.
+     */
+    int[] getTilePixels(int size) {
+        if (tilePixels == null || tilePixelsSize != size) {
+            BufferedImage image = new BufferedImage(TILE_COUNT * size, size, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2 = image.createGraphics();
+            drawTiles(g2, size);
+            g2.dispose();
+            int[] pixels = new int[TILE_COUNT * size * size];
+            for (int tile = 0; tile < TILE_COUNT; tile++) {
+                image.getRGB(tile * size, 0, size, size, pixels, tile * size * size, size);
+            }
+            for (int i = 0; i < pixels.length; i++) {
+                pixels[i] &= 0xFFFFFF; // getRGB adds an opaque alpha, which an RGB image doesn't store
+            }
+            tilePixels = pixels;
+            tilePixelsSize = size;
+        }
+        return tilePixels;
+    }
+
+    /**
+     * Returns the average color of each tile, for drawing squares too small to show their tiles: a pixel
+     * standing for a block of squares is the average of their tiles' colors.
+     *
+     * @return The RGB color of tile n at index n.
+     */
+    int[] getPalette() {
+        if (palette == null) {
+            int size = 16;
+            BufferedImage image = new BufferedImage(TILE_COUNT * size, size, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2 = image.createGraphics();
+            drawTiles(g2, size);
+            g2.dispose();
+            int[] colors = new int[TILE_COUNT];
+            for (int tile = 0; tile < TILE_COUNT; tile++) {
+                int red = 0, green = 0, blue = 0;
+                for (int y = 0; y < size; y++) {
+                    for (int x = tile * size; x < (tile + 1) * size; x++) {
+                        int rgb = image.getRGB(x, y);
+                        red += rgb >> 16 & 0xFF;
+                        green += rgb >> 8 & 0xFF;
+                        blue += rgb & 0xFF;
+                    }
+                }
+                int n = size * size;
+                colors[tile] = red / n << 16 | green / n << 8 | blue / n;
+            }
+            palette = colors;
+        }
+        return palette;
+    }
+
+    /**
+     * Gets the tile index for a packed grid cell.
+     *
+     * @param cell The packed cell, as stored by {@link GameEngine}.
+     * @return The position of the tile in the atlas.
+     */
+    static int tileFor(int cell) {
+        if ((cell & GameEngine.UNCOVERED) == 0) {
+            return (cell & GameEngine.FLAGGED) != 0 ? FLAGGED : COVERED;
+        }
+        return (cell & GameEngine.MINE) != 0 ? EXPLODED : OPEN + (cell & GameEngine.COUNT_MASK);
+    }
+
+    /**
+     * Draws every tile into a new atlas image.
+     */
+    private void render(GraphicsConfiguration config, int size) {
+        BufferedImage image = config.createCompatibleImage(TILE_COUNT * size, size);
+        Graphics2D g2 = image.createGraphics();
+        drawTiles(g2, size);
+        g2.dispose();
+        this.atlas = image;
+        this.size = size;
+    }
+
+    private void drawTiles(Graphics2D g2, int size) {
+        drawTile(g2, numberTile, COVERED, size, false, false, 0);
+        drawTile(g2, numberTile, FLAGGED, size, false, true, 0);
+        drawTile(g2, mineTile, EXPLODED, size, true, false, 0);
+        for (int n = 0; n <= 8; n++) {
+            numberTile.setNumberColor(Grid.getColorForNumber(n));
+            drawTile(g2, numberTile, OPEN + n, size, true, false, n);
+        }
+    }
+
+    private static void drawTile(Graphics2D g2, Square tile, int index, int size,
+                                 boolean uncovered, boolean flagged, int neighbors) {
+        ((TileState) tile).set(uncovered, flagged, neighbors);
+        tile.moveTo(0, index);
+        tile.draw(g2, size, 0, 0);
+    }
+
+    /**
+     * A square whose state is set directly instead of being read from a grid, used to draw one tile.
+     */
+    private interface TileState {
+        void set(boolean uncovered, boolean flagged, int neighbors);
+    }
+
+    private static final class TileMine extends MineSquare implements TileState {
+        private boolean uncovered, flagged;
+
+        TileMine() {
+            super(null, 0, 0);
+        }
+
+        public void set(boolean uncovered, boolean flagged, int neighbors) {
+            this.uncovered = uncovered;
+            this.flagged = flagged;
+        }
+
+        @Override
+        public boolean isUncovered() { return uncovered; }
+
+        @Override
+        public boolean isFlagged() { return flagged; }
+    }
+
+    private static final class TileNumber extends NumberSquare implements TileState {
+        private boolean uncovered, flagged;
+        private int neighbors;
+
+        TileNumber() {
+            super(null, 0, 0);
+        }
+
+        public void set(boolean uncovered, boolean flagged, int neighbors) {
+            this.uncovered = uncovered;
+            this.flagged = flagged;
+            this.neighbors = neighbors;
+        }
+
+        @Override
+        public boolean isUncovered() { return uncovered; }
+
+        @Override
+        public boolean isFlagged() { return flagged; }
+
+        @Override
+        public int getNeighbors() { return neighbors; }
+    }
+}